@@ -0,0 +1,341 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable graph of non-negative int node values and enum edge data,
+ * stored in compressed sparse row form: the edges from node {@code n} are
+ * {@code edgeStart(n)} inclusive to {@code edgeEnd(n)} exclusive, each with a
+ * {@link #target(int)} node value and the {@link Enum#ordinal()} of its data,
+ * all held in three primitive arrays indexed by node value and edge. Neighbour
+ * scans with {@link #forEachNeighbour(int, IntEdgeConsumer)} or the edge
+ * accessors neither hash nor allocate.
+ *
+ * <br>
+ * The {@link Graph} methods are supported for compatibility, the nodes and
+ * edges of the copied graph are kept so the lists and equality are those of
+ * the copied graph. A graph created from arrays with
+ * {@link #of(Class, int[], int[], int[], byte[])} only creates its edge
+ * objects on the first call to {@link #getEdges()} or
+ * {@link #getEdgesTo(Node)}, listing them by source node value.
+ * {@link #getEdgesFrom(Node)} creates its edges on every call and
+ * {@link #getEdgesTo(Node)} scans all edges, neither is meant for hot loops.
+ *
+ * @param <D> the type for {@link Edge} data
+ */
+public final class IntGraph<D extends Enum<D>> extends AbstractGraph<Integer, D>
+		implements
+		Graph<Integer, D>,
+		Serializable {
+
+	/**
+	 * Receives the edges of a node, see
+	 * {@link IntGraph#forEachNeighbour(int, IntEdgeConsumer)}
+	 */
+	@FunctionalInterface
+	public interface IntEdgeConsumer {
+
+		/**
+		 * @param destination the value of the destination node
+		 * @param data the {@link Enum#ordinal()} of the edge data
+		 */
+		void accept(int destination, int data);
+
+	}
+
+	private static final long serialVersionUID = 1L;
+
+	private final Class<D> type;
+	private final D[] constants;
+	private final int[] offsets;
+	private final int[] targets;
+	private final byte[] data;
+	private final Node<Integer>[] nodesByValue;
+	private final List<Node<Integer>> nodes;
+	private volatile List<Edge<Integer, D>> edges;
+
+	private IntGraph(Graph<Integer, D> graph, Class<D> type) {
+		this.type = type;
+		this.constants = type.getEnumConstants();
+		if (constants.length > Byte.MAX_VALUE + 1)
+			throw new IllegalArgumentException(type + " has too many constants");
+		this.nodes = Collections.unmodifiableList(new ArrayList<>(graph.getNodes()));
+		List<Edge<Integer, D>> edges = Collections
+				.unmodifiableList(new ArrayList<>(graph.getEdges()));
+		this.edges = edges;
+
+		int maxNode = -1;
+		for (Node<Integer> node : nodes) {
+			if (node.value() < 0)
+				throw new IllegalArgumentException("Negative node value " + node.value());
+			maxNode = Math.max(maxNode, node.value());
+		}
+		this.nodesByValue = newNodeArray(maxNode + 1);
+		for (Node<Integer> node : nodes)
+			nodesByValue[node.value()] = node;
+
+		// counting sort of the edges by source, keeping their order
+		this.offsets = new int[maxNode + 2];
+		for (Edge<Integer, D> edge : edges) {
+			int source = edge.source().value();
+			if (source > maxNode || nodesByValue[source] == null
+					|| !containsNode(edge.destination().value()))
+				throw new IllegalArgumentException(edge + " is not between nodes of the graph");
+			if (edge.data() == null) throw new IllegalArgumentException(edge + " has no data");
+			offsets[source + 1]++;
+		}
+		for (int node = 0; node <= maxNode; node++)
+			offsets[node + 1] += offsets[node];
+		this.targets = new int[edges.size()];
+		this.data = new byte[edges.size()];
+		int[] next = offsets.clone();
+		for (Edge<Integer, D> edge : edges) {
+			int index = next[edge.source().value()]++;
+			targets[index] = edge.destination().value();
+			data[index] = (byte) edge.data().ordinal();
+		}
+	}
+
+	private IntGraph(Class<D> type, int[] nodeValues, int[] offsets, int[] targets, byte[] data) {
+		this.type = type;
+		this.constants = type.getEnumConstants();
+		this.offsets = offsets;
+		this.targets = targets;
+		this.data = data;
+
+		int maxNode = -1;
+		for (int value : nodeValues) {
+			if (value < 0) throw new IllegalArgumentException("Negative node value " + value);
+			maxNode = Math.max(maxNode, value);
+		}
+		this.nodesByValue = newNodeArray(maxNode + 1);
+		List<Node<Integer>> nodes = new ArrayList<>(nodeValues.length);
+		for (int value : nodeValues) {
+			if (nodesByValue[value] != null)
+				throw new IllegalArgumentException("Node " + value + " is not unique");
+			nodes.add(nodesByValue[value] = new Node<>(value));
+		}
+		this.nodes = Collections.unmodifiableList(nodes);
+
+		if (offsets.length != maxNode + 2 || offsets[0] != 0
+				|| offsets[maxNode + 1] != targets.length || data.length != targets.length)
+			throw new IllegalArgumentException("Edge arrays do not match the nodes");
+		for (int node = 0; node <= maxNode; node++) {
+			if (offsets[node + 1] < offsets[node])
+				throw new IllegalArgumentException("Edge offsets are not ascending at " + node);
+			if (offsets[node + 1] > offsets[node] && nodesByValue[node] == null)
+				throw new IllegalArgumentException("Edges from " + node + " which is not a node");
+		}
+		for (int edge = 0; edge < targets.length; edge++) {
+			if (!containsNode(targets[edge])) throw new IllegalArgumentException(
+					"Edge " + edge + " to " + targets[edge] + " which is not a node");
+			if (data[edge] < 0 || data[edge] >= constants.length)
+				throw new IllegalArgumentException("Edge " + edge + " has no " + type.getSimpleName());
+		}
+	}
+
+	// arrays cannot be created with a type argument, the cast is safe as the
+	// array never leaves the graph
+	@SuppressWarnings("unchecked")
+	private static Node<Integer>[] newNodeArray(int length) {
+		return (Node<Integer>[]) new Node<?>[length];
+	}
+
+	/**
+	 * Creates a graph from its compressed sparse row arrays, for example as
+	 * read from a file. The arrays are validated but not copied, they must
+	 * not be modified afterwards.
+	 *
+	 * @param type the class of the edge data; not null
+	 * @param nodes the non-negative and distinct node values in the order of
+	 *        {@link #getNodes()}; not null
+	 * @param offsets the index of the first edge from every node value from 0
+	 *        to the largest node value, followed by the number of edges; not
+	 *        null
+	 * @param targets the destination node value of every edge; not null
+	 * @param data the {@link Enum#ordinal()} of the data of every edge; not
+	 *        null
+	 * @return the graph; never null
+	 */
+	public static <D extends Enum<D>> IntGraph<D> of(Class<D> type, int[] nodes, int[] offsets,
+			int[] targets, byte[] data) {
+		return new IntGraph<>(Objects.requireNonNull(type), Objects.requireNonNull(nodes),
+				Objects.requireNonNull(offsets), Objects.requireNonNull(targets),
+				Objects.requireNonNull(data));
+	}
+
+	/**
+	 * Copies a graph
+	 *
+	 * @param graph the graph; not null and all node values must not be
+	 *        negative
+	 * @param type the class of the edge data; not null
+	 * @return the copy, the graph itself if it already is an IntGraph of the
+	 *         same type; never null
+	 */
+	@SuppressWarnings("unchecked")
+	public static <D extends Enum<D>> IntGraph<D> copyOf(Graph<Integer, D> graph,
+			Class<D> type) {
+		Objects.requireNonNull(graph);
+		Objects.requireNonNull(type);
+		if (graph instanceof IntGraph && ((IntGraph<?>) graph).type == type)
+			return (IntGraph<D>) graph;
+		return new IntGraph<>(graph, type);
+	}
+
+	/**
+	 * Calls the consumer for every edge from a node, in the order of
+	 * {@link #getEdges()}
+	 *
+	 * @param node the value of the source node
+	 * @param consumer the consumer; not null
+	 */
+	public void forEachNeighbour(int node, IntEdgeConsumer consumer) {
+		for (int edge = edgeStart(node); edge < edgeEnd(node); edge++)
+			consumer.accept(targets[edge], data[edge]);
+	}
+
+	/**
+	 * @return the largest node value, -1 if the graph is empty
+	 */
+	public int maxNode() {
+		return nodesByValue.length - 1;
+	}
+
+	/**
+	 * @return the number of edges
+	 */
+	public int edgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * @param node the value of the node
+	 * @return the index of the first edge from the node; equal to
+	 *         {@link #edgeEnd(int)} if the node has no edges or is not in the
+	 *         graph
+	 */
+	public int edgeStart(int node) {
+		return node >= 0 && node < nodesByValue.length ? offsets[node] : 0;
+	}
+
+	/**
+	 * @param node the value of the node
+	 * @return the index after the last edge from the node
+	 */
+	public int edgeEnd(int node) {
+		return node >= 0 && node < nodesByValue.length ? offsets[node + 1] : 0;
+	}
+
+	/**
+	 * @param node the value of the node
+	 * @return the number of edges from the node
+	 */
+	public int degree(int node) {
+		return edgeEnd(node) - edgeStart(node);
+	}
+
+	/**
+	 * @param edge the index of the edge
+	 * @return the value of the destination node of the edge
+	 */
+	public int target(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * @param edge the index of the edge
+	 * @return the {@link Enum#ordinal()} of the data of the edge
+	 */
+	public int data(int edge) {
+		return data[edge];
+	}
+
+	/**
+	 * @param edge the index of the edge
+	 * @return the data of the edge; never null
+	 */
+	public D dataOf(int edge) {
+		return constants[data[edge]];
+	}
+
+	@Override
+	public void addNode(Node<Integer> node) {
+		throw new UnsupportedOperationException("Adding node is not supported in an IntGraph");
+	}
+
+	@Override
+	public void addEdge(Edge<Integer, D> edge) {
+		throw new UnsupportedOperationException("Adding edge is not supported in an IntGraph");
+	}
+
+	@Override
+	public Node<Integer> getNode(Integer value) {
+		return value != null && value >= 0 && value < nodesByValue.length ? nodesByValue[value]
+				: null;
+	}
+
+	@Override
+	public boolean containsNode(Integer value) {
+		return getNode(value) != null;
+	}
+
+	@Override
+	public List<Node<Integer>> getNodes() {
+		return nodes;
+	}
+
+	@Override
+	public Collection<Edge<Integer, D>> getEdges() {
+		List<Edge<Integer, D>> edges = this.edges;
+		if (edges == null) {
+			// racing threads create equal lists, any one of them may be kept
+			edges = new ArrayList<>(targets.length);
+			for (int node = 0; node < nodesByValue.length; node++)
+				for (int edge = edgeStart(node); edge < edgeEnd(node); edge++)
+					edges.add(new Edge<>(nodesByValue[node], nodesByValue[targets[edge]],
+							dataOf(edge)));
+			this.edges = edges = Collections.unmodifiableList(edges);
+		}
+		return edges;
+	}
+
+	@Override
+	public Collection<Edge<Integer, D>> getEdgesFrom(Node<Integer> source) {
+		Node<Integer> node = getNode(source.value());
+		if (node == null) return Collections.emptyList();
+		List<Edge<Integer, D>> from = new ArrayList<>(degree(node.value()));
+		for (int edge = edgeStart(node.value()); edge < edgeEnd(node.value()); edge++)
+			from.add(new Edge<>(node, nodesByValue[targets[edge]], dataOf(edge)));
+		return Collections.unmodifiableList(from);
+	}
+
+	@Override
+	public Collection<Edge<Integer, D>> getEdgesTo(Node<Integer> destination) {
+		List<Edge<Integer, D>> to = new ArrayList<>();
+		for (Edge<Integer, D> edge : getEdges())
+			if (edge.destination().equals(destination)) to.add(edge);
+		return Collections.unmodifiableList(to);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return nodes.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return nodes.size();
+	}
+
+	@Override
+	public String toString() {
+		return "IntGraph{" + "nodes=" + nodes.size() + ", edges=" + targets.length + '}';
+	}
+
+}
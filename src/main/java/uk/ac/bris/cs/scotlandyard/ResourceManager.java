@@ -18,6 +18,7 @@ import javafx.scene.image.Image;
 import uk.ac.bris.cs.gamekit.graph.Graph;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.scotlandyard.ai.ResourceProvider;
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle;
 import uk.ac.bris.cs.scotlandyard.model.StandardGame;
 import uk.ac.bris.cs.scotlandyard.model.Ticket;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
@@ -37,6 +38,7 @@ public final class ResourceManager implements ResourceProvider {
 	private Map<Ticket, Image> ticketResources;
 	private Map<Integer, Entry<Integer, Integer>> mapCoordinates;
 	private Graph<Integer, Transport> graph;
+	private DistanceOracle distanceOracle;
 
 	/**
 	 * Loads all resources into memory <br>
@@ -58,6 +60,7 @@ public final class ResourceManager implements ResourceProvider {
 
 		mapCoordinates = ImmutableMap.copyOf(StandardGame.pngMapPositionEntries());
 		graph = new ImmutableGraph<>(StandardGame.standardGraph());
+		distanceOracle = DistanceOracle.of(graph);
 	}
 
 	private static Image loadImage(String path) {
@@ -83,6 +86,11 @@ public final class ResourceManager implements ResourceProvider {
 		return graph;
 	}
 
+	@Override
+	public DistanceOracle getDistanceOracle() {
+		return distanceOracle;
+	}
+
 	@Override
 	public Point2D coordinateAtNode(int node) {
 		Entry<Integer, Integer> entry = mapCoordinates.get(node);
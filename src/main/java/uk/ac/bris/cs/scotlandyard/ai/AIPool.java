@@ -143,9 +143,12 @@ public class AIPool<G> {
 				int location,
 				Set<Move> moves,
 				Consumer<Move> callback) {
+			// taken on the game's thread, the game carries on while the AI thinks
+			ScotlandYardView snapshot = view.snapshot();
+			Set<Move> snapshotMoves = ImmutableSet.copyOf(moves);
 			service.submit((Callable<Void>) () -> {
 				try {
-					player.makeMove(view, location, ImmutableSet.copyOf(moves), callback);
+					player.makeMove(snapshot, location, snapshotMoves, callback);
 				} catch (Throwable e) {
 					e.printStackTrace();
 					exceptionHandler.accept(e);
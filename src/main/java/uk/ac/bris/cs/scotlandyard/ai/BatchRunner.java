@@ -0,0 +1,359 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.GameTemplate;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardModel;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardView;
+import uk.ac.bris.cs.scotlandyard.model.Seeds;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Plays many complete headless games in parallel, for example to measure the
+ * balance between two {@link PlayerFactory}s. Game {@code i} of a run gets the
+ * seed {@link Seeds#game(long, long)}, which picks the starting locations (see
+ * {@link StandardGame#generateDetectiveLocations(SplittableRandom, int)} and
+ * {@link StandardGame#generateMrXLocation(SplittableRandom)}) and is passed to
+ * the functions creating the game's player factories, for example
+ * {@link RandomAI#RandomAI(long)}. Results are therefore reproducible
+ * regardless of the number of threads or of scheduling.
+ *
+ * <br>
+ * The range of games is split recursively on a work-stealing
+ * {@link ForkJoinPool}; each task keeps its own tally and tallies are merged
+ * when tasks join, so threads never contend.
+ *
+ * <br>
+ * Players must call back before
+ * {@link Player#makeMove(ScotlandYardView, int, Set, Consumer)} returns, as
+ * {@link FirstMoveAI} and {@link RandomAI} do.
+ * {@link PlayerFactory#createSpectators(ScotlandYardView)} and
+ * {@link PlayerFactory#finish()} are called for each game,
+ * {@link PlayerFactory#ready(Visualiser, ResourceProvider)} is not as there
+ * is no user interface.
+ */
+public final class BatchRunner {
+
+	// games played by a task without splitting further
+	private static final int LEAF_GAMES = 8;
+
+	/**
+	 * Aggregated results of a batch of games
+	 */
+	public static final class Results {
+
+		private final Tally tally;
+		private final long nanos;
+
+		private Results(Tally tally, long nanos) {
+			this.tally = tally;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return the number of games played
+		 */
+		public int games() {
+			return tally.games;
+		}
+
+		/**
+		 * @return the number of games MrX won
+		 */
+		public int mrXWins() {
+			return tally.mrXWins;
+		}
+
+		/**
+		 * @return the number of games the detectives won
+		 */
+		public int detectiveWins() {
+			return tally.games - tally.mrXWins;
+		}
+
+		/**
+		 * @return the ratio of games won by MrX; 0 if nothing was played
+		 */
+		public double mrXWinRate() {
+			return tally.games == 0 ? 0 : (double) tally.mrXWins / tally.games;
+		}
+
+		/**
+		 * @return the number of games that ended at each round, indexed by
+		 *         {@link ScotlandYardView#getCurrentRound()} at the end of the
+		 *         game; never null
+		 */
+		public long[] roundHistogram() {
+			return tally.rounds.clone();
+		}
+
+		/**
+		 * @return the average round at which games ended
+		 */
+		public double averageRounds() {
+			if (tally.games == 0) return 0;
+			long sum = 0;
+			for (int round = 0; round < tally.rounds.length; round++)
+				sum += round * tally.rounds[round];
+			return (double) sum / tally.games;
+		}
+
+		/**
+		 * @return the total number of moves made
+		 */
+		public long moves() {
+			return tally.moves;
+		}
+
+		/**
+		 * @return the average time players took to choose a move, in
+		 *         nanoseconds
+		 */
+		public double averageMoveNanos() {
+			return tally.moves == 0 ? 0 : (double) tally.moveNanos / tally.moves;
+		}
+
+		/**
+		 * @return the longest time a player took to choose a move, in
+		 *         nanoseconds
+		 */
+		public long maxMoveNanos() {
+			return tally.maxMoveNanos;
+		}
+
+		/**
+		 * @return the wall clock time of the whole batch in nanoseconds
+		 */
+		public long nanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the throughput in games per second
+		 */
+		public double gamesPerSecond() {
+			return nanos == 0 ? 0 : tally.games * 1e9 / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"Results{games=%d, mrXWinRate=%.3f, averageRounds=%.1f, averageMoveMicros=%.1f, games/s=%.0f}",
+					games(), mrXWinRate(), averageRounds(), averageMoveNanos() / 1000,
+					gamesPerSecond());
+		}
+	}
+
+	// mutable results of one task, merged into the parent when joined
+	private static final class Tally {
+		int games;
+		int mrXWins;
+		final long[] rounds;
+		long moves;
+		long moveNanos;
+		long maxMoveNanos;
+
+		Tally(int roundCount) {
+			this.rounds = new long[roundCount + 1];
+		}
+
+		void recordMove(long nanos) {
+			moves++;
+			moveNanos += nanos;
+			maxMoveNanos = Math.max(maxMoveNanos, nanos);
+		}
+
+		Tally merge(Tally that) {
+			games += that.games;
+			mrXWins += that.mrXWins;
+			for (int i = 0; i < rounds.length; i++)
+				rounds[i] += that.rounds[i];
+			moves += that.moves;
+			moveNanos += that.moveNanos;
+			maxMoveNanos = Math.max(maxMoveNanos, that.maxMoveNanos);
+			return this;
+		}
+	}
+
+	// stands in for the players of the template, every game gets new ones
+	private static final Player UNASSIGNED = (view, location, moves, callback) -> {
+		throw new IllegalStateException("No player");
+	};
+
+	private final GameTemplate template;
+	private final int roundCount;
+	private final int detectives;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a runner for standard games on the common pool
+	 *
+	 * @param graph the graph; not null
+	 * @param detectives the number of detectives; between 1 and 5
+	 */
+	public BatchRunner(Graph<Integer, Transport> graph, int detectives) {
+		this(StandardGame.ROUNDS, graph, detectives, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a runner, players get the tickets of
+	 * {@link StandardGame#generateMrXTickets()} and
+	 * {@link StandardGame#generateDetectiveTickets()}
+	 *
+	 * @param rounds the rounds; not null and not empty
+	 * @param graph the graph; not null
+	 * @param detectives the number of detectives; between 1 and 5
+	 * @param pool the pool to play the games on; not null
+	 */
+	public BatchRunner(List<Boolean> rounds, Graph<Integer, Transport> graph, int detectives,
+			ForkJoinPool pool) {
+		requireNonNull(rounds);
+		requireNonNull(graph);
+		this.pool = requireNonNull(pool);
+		if (detectives < 1 || detectives >= Colour.values().length)
+			throw new IllegalArgumentException("Invalid number of detectives " + detectives);
+		this.detectives = detectives;
+		this.roundCount = rounds.size();
+		Colour[] colours = Colour.values();
+		List<PlayerConfiguration> players = new ArrayList<>();
+		players.add(new PlayerConfiguration.Builder(Colour.Black).using(UNASSIGNED)
+				.with(StandardGame.generateMrXTickets())
+				.at(StandardGame.MRX_LOCATIONS.get(0)).build());
+		for (int i = 0; i < detectives; i++)
+			players.add(new PlayerConfiguration.Builder(colours[i + 1]).using(UNASSIGNED)
+					.with(StandardGame.generateDetectiveTickets())
+					.at(StandardGame.DETECTIVE_LOCATIONS.get(i)).build());
+		this.template = new GameTemplate(rounds, graph, players.get(0), players.get(1),
+				players.subList(2, players.size()).toArray(new PlayerConfiguration[0]));
+	}
+
+	/**
+	 * Plays a batch of games and waits for all of them to finish
+	 *
+	 * @param runSeed the seed of the run, see {@link Seeds}
+	 * @param games the number of games; zero or greater
+	 * @param mrX creates the factory of MrX's player from a game seed; not null
+	 * @param detectives creates the factory shared by the detectives of a game
+	 *        from a game seed; not null
+	 * @return the aggregated results; never null
+	 */
+	public Results run(long runSeed, int games, LongFunction<? extends PlayerFactory> mrX,
+			LongFunction<? extends PlayerFactory> detectives) {
+		requireNonNull(mrX);
+		requireNonNull(detectives);
+		if (games < 0) throw new IllegalArgumentException("games < 0");
+		long start = System.nanoTime();
+		Tally tally = pool.invoke(new Batch(runSeed, 0, games, mrX, detectives));
+		return new Results(tally, System.nanoTime() - start);
+	}
+
+	private final class Batch extends RecursiveTask<Tally> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long runSeed;
+		private final int from;
+		private final int to;
+		private final LongFunction<? extends PlayerFactory> mrX;
+		private final LongFunction<? extends PlayerFactory> detectives;
+
+		Batch(long runSeed, int from, int to, LongFunction<? extends PlayerFactory> mrX,
+				LongFunction<? extends PlayerFactory> detectives) {
+			this.runSeed = runSeed;
+			this.from = from;
+			this.to = to;
+			this.mrX = mrX;
+			this.detectives = detectives;
+		}
+
+		@Override
+		protected Tally compute() {
+			if (to - from <= LEAF_GAMES) {
+				Tally tally = new Tally(roundCount);
+				for (int game = from; game < to; game++) {
+					long seed = Seeds.game(runSeed, game);
+					play(seed, mrX.apply(seed), detectives.apply(seed), tally);
+				}
+				return tally;
+			}
+			int middle = (from + to) >>> 1;
+			Batch left = new Batch(runSeed, from, middle, mrX, detectives);
+			left.fork();
+			Tally right = new Batch(runSeed, middle, to, mrX, detectives).compute();
+			return left.join().merge(right);
+		}
+	}
+
+	private void play(long seed, PlayerFactory mrXFactory, PlayerFactory detectiveFactory,
+			Tally tally) {
+		SplittableRandom random = Seeds.random(seed);
+		int[] locations = new int[detectives + 1];
+		locations[0] = StandardGame.generateMrXLocation(random);
+		List<Integer> detectiveLocations = StandardGame.generateDetectiveLocations(random, detectives);
+		for (int i = 0; i < detectives; i++)
+			locations[i + 1] = detectiveLocations.get(i);
+		ScotlandYardModel game = template.newGame(colour -> new TimedPlayer(
+				(colour == Colour.Black ? mrXFactory : detectiveFactory).createPlayer(colour), tally),
+				locations);
+		List<PlayerFactory> factories = mrXFactory == detectiveFactory
+				? Collections.singletonList(mrXFactory)
+				: Arrays.asList(mrXFactory, detectiveFactory);
+		for (PlayerFactory factory : factories)
+			factory.createSpectators(game).forEach(game::registerSpectator);
+		try {
+			while (!game.isGameOver()) {
+				long moves = tally.moves;
+				game.startRotate();
+				if (!game.isGameOver()
+						&& (game.getCurrentPlayer() != Colour.Black || tally.moves == moves))
+					throw new IllegalStateException("Player of " + game.getCurrentPlayer()
+							+ " did not move before returning from makeMove, game seed " + seed);
+			}
+		} finally {
+			factories.forEach(PlayerFactory::finish);
+		}
+		tally.games++;
+		if (game.getWinningPlayers().contains(Colour.Black)) tally.mrXWins++;
+		tally.rounds[Math.min(game.getCurrentRound(), tally.rounds.length - 1)]++;
+	}
+
+	// measures the time between being asked for a move and making it
+	private static final class TimedPlayer implements Player {
+
+		private final Player player;
+		private final Tally tally;
+
+		TimedPlayer(Player player, Tally tally) {
+			this.player = requireNonNull(player);
+			this.tally = tally;
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			long start = System.nanoTime();
+			player.makeMove(view, location, moves, move -> {
+				tally.recordMove(System.nanoTime() - start);
+				callback.accept(move);
+			});
+		}
+	}
+
+}
@@ -3,6 +3,7 @@ package uk.ac.bris.cs.scotlandyard.ai;
 import javafx.geometry.Point2D;
 import javafx.scene.image.Image;
 import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle;
 import uk.ac.bris.cs.scotlandyard.model.Ticket;
 import uk.ac.bris.cs.scotlandyard.model.Transport;
 
@@ -45,4 +46,12 @@ public interface ResourceProvider {
 	 */
 	Point2D coordinateAtNode(int node);
 
+	/**
+	 * Retrieves the shortest distances between all nodes of
+	 * {@link #getGraph()}, computed once when the graph is loaded
+	 *
+	 * @return the distance oracle of the game graph; never null
+	 */
+	DistanceOracle getDistanceOracle();
+
 }
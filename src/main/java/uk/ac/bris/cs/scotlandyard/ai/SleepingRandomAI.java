@@ -1,10 +1,11 @@
 package uk.ac.bris.cs.scotlandyard.ai;
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import uk.ac.bris.cs.scotlandyard.model.Colour;
 import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.Seeds;
 
 /**
  * An AI that sleeps for 100ms and then picks a random move
@@ -12,10 +13,28 @@ import uk.ac.bris.cs.scotlandyard.model.Player;
 @ManagedAI(value = "Sleep 100ms")
 public class SleepingRandomAI implements PlayerFactory {
 
-	private final Random random = new Random();
+	private final long seed;
+
+	/**
+	 * Creates an AI with a random seed
+	 */
+	public SleepingRandomAI() {
+		this(new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Creates an AI whose players are seeded from a game seed, each player
+	 * gets its own generator so players never contend
+	 *
+	 * @param seed the seed of the game, see {@link Seeds#game(long, long)}
+	 */
+	public SleepingRandomAI(long seed) {
+		this.seed = seed;
+	}
 
 	@Override
 	public Player createPlayer(Colour colour) {
+		SplittableRandom random = Seeds.random(Seeds.player(seed, colour));
 		return (view, location, moves, callback) -> {
 			try {
 				Thread.sleep(100);
@@ -0,0 +1,140 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Double;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Secret;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of the valid moves of a player at a position. The position
+ * is captured when the set is created, {@link #contains(Object)} checks the
+ * rules directly (the edge exists, the destination is free and the player
+ * holds the tickets) and the moves are only enumerated, once, when the set is
+ * iterated or sized. Players that pick a move without iterating all of them
+ * never pay for expanding every double move.
+ *
+ * <br>
+ * The set can be read from any thread.
+ */
+final class AvailableMoveSet extends AbstractSet<Move> {
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private final NeighbourTable neighbours;
+	private final Colour colour;
+	private final int location;
+	private final int[] tickets;
+	private final long[] occupied;
+	private final boolean doubleAllowed;
+	private final boolean pass;
+	private final boolean empty;
+	private MoveBuffer moves;
+
+	/**
+	 * Captures a position
+	 *
+	 * @param generator the generator to check whether the player can move,
+	 *        only used during construction
+	 * @param colour the colour of the player
+	 * @param location the location of the player
+	 * @param tickets the ticket counts of the player indexed by
+	 *        {@link Ticket#ordinal()}, copied
+	 * @param doubleAllowed whether the rounds left allow a double move
+	 * @param occupied the nodes that cannot be moved to, copied
+	 * @param passIfStuck whether the set should hold a single
+	 *        {@link PassMove} if the player cannot move
+	 */
+	AvailableMoveSet(MoveGenerator generator, Colour colour, int location, int[] tickets,
+			boolean doubleAllowed, long[] occupied, boolean passIfStuck) {
+		this.neighbours = generator.neighbours();
+		this.colour = colour;
+		this.location = location;
+		this.tickets = tickets.clone();
+		this.occupied = occupied.clone();
+		this.doubleAllowed = doubleAllowed && tickets[Double.ordinal()] > 0;
+		boolean stuck = !generator.canMove(location, tickets, occupied);
+		this.pass = stuck && passIfStuck;
+		this.empty = stuck && !passIfStuck;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Move) || ((Move) o).colour() != colour) return false;
+		if (o instanceof PassMove) return pass;
+		if (pass) return false;
+		if (o instanceof TicketMove) {
+			TicketMove move = (TicketMove) o;
+			return tickets[move.ticket().ordinal()] > 0
+					&& canTravel(location, move.ticket(), move.destination());
+		}
+		if (o instanceof DoubleMove) {
+			DoubleMove move = (DoubleMove) o;
+			TicketMove first = move.firstMove();
+			TicketMove second = move.secondMove();
+			return doubleAllowed
+					&& first.colour() == colour && second.colour() == colour
+					&& tickets[first.ticket().ordinal()] > 0
+					&& tickets[second.ticket().ordinal()] >= (move.hasSameTicket() ? 2 : 1)
+					&& canTravel(location, first.ticket(), first.destination())
+					&& canTravel(first.destination(), second.ticket(), second.destination());
+		}
+		return false;
+	}
+
+	// true if the ticket can be used on an edge from source to a free destination
+	private boolean canTravel(int source, Ticket ticket, int destination) {
+		if (Bitboards.contains(occupied, destination)) return false;
+		if (ticket == Secret) return Bitboards.contains(neighbours.anyNeighbours(source), destination);
+		for (Transport transport : TRANSPORTS) {
+			if (Ticket.fromTransport(transport) == ticket
+					&& Bitboards.contains(neighbours.neighbours(transport, source), destination))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return empty;
+	}
+
+	@Override
+	public int size() {
+		return moves().size();
+	}
+
+	@Override
+	public Iterator<Move> iterator() {
+		MoveBuffer moves = moves();
+		return new Iterator<Move>() {
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < moves.size();
+			}
+
+			@Override
+			public Move next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return PackedMove.toMove(moves.get(index++));
+			}
+		};
+	}
+
+	// enumerates the moves on first use with a generator of our own, so this
+	// works on any thread
+	private synchronized MoveBuffer moves() {
+		if (moves == null) {
+			MoveBuffer buffer = new MoveBuffer();
+			if (pass) buffer.add(PackedMove.pass(colour));
+			else new MoveGenerator(neighbours).generate(colour, location, tickets, doubleAllowed,
+					occupied, buffer);
+			moves = buffer;
+		}
+		return moves;
+	}
+
+}
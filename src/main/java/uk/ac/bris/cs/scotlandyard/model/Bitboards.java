@@ -0,0 +1,115 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+/**
+ * A collection of utility methods for node bitboards. A bitboard is a
+ * {@code long[]} where bit {@code n} is set if node {@code n} is in the set,
+ * the standard map with 199 nodes fits in four words.
+ */
+public final class Bitboards {
+
+	private Bitboards() {
+		// nope
+	}
+
+	/**
+	 * Number of words required to hold nodes up to and including the given
+	 * node
+	 *
+	 * @param maxNode the largest node value; zero or greater
+	 * @return the word count; always greater than zero
+	 */
+	public static int wordsFor(int maxNode) {
+		if (maxNode < 0) throw new IllegalArgumentException("maxNode < 0");
+		return (maxNode >>> 6) + 1;
+	}
+
+	/**
+	 * Adds a node to the board, nodes that do not fit are ignored
+	 *
+	 * @param board the board; not null
+	 * @param node the node
+	 */
+	public static void set(long[] board, int node) {
+		int word = node >>> 6;
+		if (word < board.length) board[word] |= 1L << node;
+	}
+
+	/**
+	 * Removes a node from the board, nodes that do not fit are ignored
+	 *
+	 * @param board the board; not null
+	 * @param node the node
+	 */
+	public static void clear(long[] board, int node) {
+		int word = node >>> 6;
+		if (word < board.length) board[word] &= ~(1L << node);
+	}
+
+	/**
+	 * @param board the board; not null
+	 * @param node the node
+	 * @return true if the node is in the board
+	 */
+	public static boolean contains(long[] board, int node) {
+		int word = node >>> 6;
+		return word < board.length && (board[word] & (1L << node)) != 0;
+	}
+
+	/**
+	 * Computes {@code a & ~b} word by word into {@code out}; all boards must
+	 * have the same length
+	 *
+	 * @param a the board to take nodes from; not null
+	 * @param b the board of nodes to remove; not null
+	 * @param out the result; may be the same array as {@code a}
+	 * @return true if the result is not empty
+	 */
+	public static boolean andNot(long[] a, long[] b, long[] out) {
+		long any = 0;
+		for (int i = 0; i < out.length; i++) {
+			out[i] = a[i] & ~b[i];
+			any |= out[i];
+		}
+		return any != 0;
+	}
+
+	/**
+	 * Finds the next node in the board
+	 *
+	 * @param board the board; not null
+	 * @param from the node to start searching from, inclusive
+	 * @return the next node or -1 if there are no more nodes
+	 */
+	public static int nextSetBit(long[] board, int from) {
+		int word = from >>> 6;
+		if (word >= board.length) return -1;
+		long bits = board[word] & (-1L << from);
+		while (true) {
+			if (bits != 0) return (word << 6) + Long.numberOfTrailingZeros(bits);
+			if (++word == board.length) return -1;
+			bits = board[word];
+		}
+	}
+
+	/**
+	 * @param board the board; not null
+	 * @return the number of nodes in the board
+	 */
+	public static int cardinality(long[] board) {
+		int count = 0;
+		for (long word : board)
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * @param board the board; not null
+	 * @return true if the board contains no nodes
+	 */
+	public static boolean isEmpty(long[] board) {
+		for (long word : board)
+			if (word != 0) return false;
+		return true;
+	}
+
+}
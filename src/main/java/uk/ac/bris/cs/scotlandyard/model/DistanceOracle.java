@@ -0,0 +1,173 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.IntGraph;
+
+/**
+ * All-pairs shortest hop distances of a map, precomputed once for each
+ * {@link Network} so that a distance is a single array read. Each network
+ * has a {@code byte[n * n]} table, {@code n} being the largest node value
+ * plus one, filled with one breadth first search per source node; the
+ * searches run in parallel on the common fork join pool.
+ *
+ * <br>
+ * Distances ignore ticket counts and other players. Oracles are immutable and
+ * can be shared between any number of threads and games on the same graph,
+ * build one per graph (see {@code ResourceProvider.getDistanceOracle()}).
+ */
+public final class DistanceOracle {
+
+	/**
+	 * The distance between nodes that are not connected
+	 */
+	public static final int UNREACHABLE = -1;
+
+	// the largest array most virtual machines can allocate
+	private static final long MAX_TABLE = Integer.MAX_VALUE - 8;
+
+	/**
+	 * The subsets of transports distances are computed for
+	 */
+	public enum Network {
+
+		/**
+		 * Taxi edges only
+		 */
+		Taxi(Transport.Taxi),
+
+		/**
+		 * Taxi and bus edges
+		 */
+		TaxiBus(Transport.Taxi, Transport.Bus),
+
+		/**
+		 * Every edge a detective can use: taxi, bus and underground
+		 */
+		Detective(Transport.Taxi, Transport.Bus, Transport.Underground),
+
+		/**
+		 * Every edge including boats, as MrX can use with secret tickets
+		 */
+		Any(Transport.values());
+
+		private final Set<Transport> transports;
+		private final int mask;
+
+		Network(Transport... transports) {
+			EnumSet<Transport> set = EnumSet.noneOf(Transport.class);
+			set.addAll(Arrays.asList(transports));
+			this.transports = Collections.unmodifiableSet(set);
+			this.mask = set.stream().mapToInt(t -> 1 << t.ordinal()).reduce(0, (a, b) -> a | b);
+		}
+
+		/**
+		 * @return the transports of this network; never null
+		 */
+		public Set<Transport> transports() {
+			return transports;
+		}
+	}
+
+	private final int size;
+	private final byte[][] tables;
+
+	private DistanceOracle(int size, byte[][] tables) {
+		this.size = size;
+		this.tables = tables;
+	}
+
+	/**
+	 * Computes the distance tables of a graph
+	 *
+	 * @param graph the graph; not null, with non-negative node values below
+	 *        46340 so that a table fits in an array, and no shortest path
+	 *        longer than 127 edges
+	 * @return the oracle; never null
+	 */
+	public static DistanceOracle of(Graph<Integer, Transport> graph) {
+		IntGraph<Transport> csr = IntGraph.copyOf(requireNonNull(graph), Transport.class);
+		int size = csr.maxNode() + 1;
+		if ((long) size * size > MAX_TABLE)
+			throw new IllegalArgumentException("Graph has too many nodes for a distance table");
+		Network[] networks = Network.values();
+		byte[][] tables = new byte[networks.length][];
+		for (Network network : networks) {
+			byte[] table = new byte[size * size];
+			Arrays.fill(table, (byte) UNREACHABLE);
+			IntStream.range(0, size).parallel()
+					.forEach(source -> search(csr, network.mask, source, table, size));
+			tables[network.ordinal()] = table;
+		}
+		return new DistanceOracle(size, tables);
+	}
+
+	// breadth first search from one source, filling its row of the table
+	private static void search(IntGraph<Transport> graph, int mask, int source, byte[] table,
+			int size) {
+		if (!graph.containsNode(source)) return;
+		int row = source * size;
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = source;
+		table[row + source] = 0;
+		while (head < tail) {
+			int node = queue[head++];
+			int next = table[row + node] + 1;
+			for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++) {
+				int target = graph.target(edge);
+				if ((mask & 1 << graph.data(edge)) != 0 && table[row + target] == UNREACHABLE) {
+					if (next > Byte.MAX_VALUE)
+						throw new IllegalArgumentException("Path from " + source + " is too long");
+					table[row + target] = (byte) next;
+					queue[tail++] = target;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The least number of moves between two nodes using the edges of a
+	 * network
+	 *
+	 * @param network the network; not null
+	 * @param from the start node, between 0 and {@link #maxNode()}
+	 * @param to the end node, between 0 and {@link #maxNode()}
+	 * @return the distance, or {@link #UNREACHABLE}
+	 */
+	public int distance(Network network, int from, int to) {
+		checkNodes(from, to);
+		return tables[network.ordinal()][from * size + to];
+	}
+
+	/**
+	 * The least number of moves between two nodes using any edge, see
+	 * {@link #distance(Network, int, int)}
+	 */
+	public int distance(int from, int to) {
+		checkNodes(from, to);
+		return tables[Network.Any.ordinal()][from * size + to];
+	}
+
+	// the table is flat, a node out of range would read another row
+	private void checkNodes(int from, int to) {
+		if (from < 0 || from >= size || to < 0 || to >= size)
+			throw new IllegalArgumentException("Node not in graph");
+	}
+
+	/**
+	 * @return the largest node value of the graph
+	 */
+	public int maxNode() {
+		return size - 1;
+	}
+
+}
@@ -3,12 +3,14 @@ package uk.ac.bris.cs.scotlandyard.model;
 import java.util.Objects;
 
 /**
- * Represents a double move in the Scotland Yard game
+ * Represents a double move in the Scotland Yard game, see {@link Moves} for
+ * cached instances
  */
 public class DoubleMove extends Move {
 
 	private final TicketMove firstMove;
 	private final TicketMove secondMove;
+	private final int hash;
 
 	/**
 	 * Create a new double move from two individual ticket moves
@@ -21,6 +23,7 @@ public class DoubleMove extends Move {
 		super(player);
 		this.firstMove = firstMove;
 		this.secondMove = secondMove;
+		this.hash = Objects.hash(super.hashCode(), firstMove, secondMove);
 	}
 
 	/**
@@ -35,8 +38,9 @@ public class DoubleMove extends Move {
 	public DoubleMove(Colour player, Ticket first, int firstDestination, Ticket second,
 			int secondDestination) {
 		super(player);
-		this.firstMove = new TicketMove(player, first, firstDestination);
-		this.secondMove = new TicketMove(player, second, secondDestination);
+		this.firstMove = Moves.ticket(player, first, firstDestination);
+		this.secondMove = Moves.ticket(player, second, secondDestination);
+		this.hash = Objects.hash(super.hashCode(), firstMove, secondMove);
 	}
 
 	/**
@@ -79,13 +83,13 @@ public class DoubleMove extends Move {
 		if (o == null || getClass() != o.getClass()) return false;
 		if (!super.equals(o)) return false;
 		DoubleMove that = (DoubleMove) o;
-		return Objects.equals(firstMove, that.firstMove)
+		return hash == that.hash && Objects.equals(firstMove, that.firstMove)
 				&& Objects.equals(secondMove, that.secondMove);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(super.hashCode(), firstMove, secondMove);
+		return hash;
 	}
 
 	@Override
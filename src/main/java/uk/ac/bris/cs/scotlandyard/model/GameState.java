@@ -0,0 +1,413 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.DETECTIVES_WON;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.MRX_WON;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.ONGOING;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * An immutable position of a Scotland Yard game, following the same rules as
+ * {@link ScotlandYardEngine}. {@link #advance(int)} returns a new state in
+ * O(players) time and shares everything that did not change with its parent:
+ * the rounds, colours and neighbour table are shared by every state of a
+ * game, and ticket rows and the occupancy board are only copied for the
+ * players that moved.
+ *
+ * <br>
+ * States can be handed to any number of threads without locking or copying,
+ * forking a position is simply sharing the reference.
+ */
+public final class GameState {
+
+	private static final int DOUBLE = Ticket.Double.ordinal();
+
+	/**
+	 * Everything that never changes during a game
+	 */
+	private static final class Setup {
+
+		private final boolean[] rounds;
+		private final Colour[] colours;
+		private final int[] indices;
+		private final NeighbourTable neighbours;
+		private final ThreadLocal<MoveGenerator> generator;
+
+		private Setup(boolean[] rounds, Colour[] colours, NeighbourTable neighbours) {
+			if (rounds.length == 0) throw new IllegalArgumentException("Empty rounds");
+			if (colours.length < 2) throw new IllegalArgumentException("No detectives");
+			if (colours[0] != Black) throw new IllegalArgumentException("MrX should be Black");
+			this.rounds = rounds;
+			this.colours = colours;
+			this.neighbours = requireNonNull(neighbours);
+			this.generator = ThreadLocal.withInitial(() -> new MoveGenerator(neighbours));
+			this.indices = new int[Colour.values().length];
+			Arrays.fill(indices, -1);
+			for (int i = 0; i < colours.length; i++) {
+				if (indices[colours[i].ordinal()] != -1)
+					throw new IllegalArgumentException("Duplicate colour");
+				indices[colours[i].ordinal()] = i;
+			}
+		}
+	}
+
+	private final Setup setup;
+	private final int[] locations;
+	private final int[][] tickets;
+	private final long[] occupied;
+	private final int round;
+	private final int current;
+	private final int lastKnownLocation;
+	private final int status;
+
+	private GameState(Setup setup, int[] locations, int[][] tickets, long[] occupied, int round,
+			int current, int lastKnownLocation, int status) {
+		this.setup = setup;
+		this.locations = locations;
+		this.tickets = tickets;
+		this.occupied = occupied;
+		this.round = round;
+		this.current = current;
+		this.lastKnownLocation = lastKnownLocation;
+		this.status = status;
+	}
+
+	private static GameState create(Setup setup, int[] locations, int[][] tickets, int round,
+			int current, int lastKnownLocation) {
+		long[] occupied = new long[setup.neighbours.words()];
+		for (int i = 1; i < locations.length; i++)
+			Bitboards.set(occupied, locations[i]);
+		int status = current == 0 ? rotationEnd(setup, locations, tickets, occupied, round)
+				: ONGOING;
+		return new GameState(setup, locations, tickets, occupied, round, current,
+				lastKnownLocation, status);
+	}
+
+	// a state read back by GameStateCodec, status is trusted rather than
+	// recomputed so finished games round trip exactly
+	static GameState restore(boolean[] rounds, Colour[] colours, NeighbourTable neighbours,
+			int[] locations, int[][] tickets, int round, int current, int lastKnownLocation,
+			int status) {
+		Setup setup = new Setup(rounds, colours, neighbours);
+		if (current < 0 || current >= colours.length)
+			throw new IllegalArgumentException("Invalid current player " + current);
+		long[] occupied = new long[neighbours.words()];
+		for (int i = 1; i < locations.length; i++)
+			Bitboards.set(occupied, locations[i]);
+		return new GameState(setup, locations, tickets, occupied, round, current,
+				lastKnownLocation, status);
+	}
+
+	/**
+	 * Creates the state at the start of a game, see
+	 * {@link ScotlandYardGameFactory#createGame(List, Graph, PlayerConfiguration, PlayerConfiguration, PlayerConfiguration...)}
+	 * for the parameters. The {@link PlayerConfiguration#player} of the
+	 * configurations is ignored.
+	 *
+	 * @return the state; never null
+	 */
+	public static GameState initial(List<Boolean> rounds, NeighbourTable neighbours,
+			PlayerConfiguration mrX, PlayerConfiguration firstDetective,
+			PlayerConfiguration... restOfTheDetectives) {
+		List<PlayerConfiguration> players = ScotlandYardEngine.configurations(mrX,
+				firstDetective, restOfTheDetectives);
+		Setup setup = new Setup(ScotlandYardEngine.toArray(rounds),
+				players.stream().map(p -> p.colour).toArray(Colour[]::new), neighbours);
+		return create(setup, players.stream().mapToInt(p -> p.location).toArray(),
+				players.stream().map(p -> ScotlandYardEngine.toArray(p.tickets))
+						.toArray(int[][]::new),
+				ScotlandYardView.NOT_STARTED, 0, 0);
+	}
+
+	/**
+	 * Creates the state at the start of a game, building the neighbour table
+	 * from the graph
+	 *
+	 * @return the state; never null
+	 */
+	public static GameState initial(List<Boolean> rounds, Graph<Integer, Transport> graph,
+			PlayerConfiguration mrX, PlayerConfiguration firstDetective,
+			PlayerConfiguration... restOfTheDetectives) {
+		return initial(rounds, new NeighbourTable(requireNonNull(graph)), mrX, firstDetective,
+				restOfTheDetectives);
+	}
+
+	/**
+	 * Creates a state from a view, see
+	 * {@link ScotlandYardEngine#fromView(ScotlandYardView, int, NeighbourTable)}
+	 *
+	 * @return the state; never null
+	 */
+	public static GameState fromView(ScotlandYardView view, int mrXLocation,
+			NeighbourTable neighbours) {
+		requireNonNull(view);
+		List<Colour> players = view.getPlayers();
+		Colour[] colours = players.toArray(new Colour[0]);
+		int[] locations = new int[colours.length];
+		int[][] tickets = new int[colours.length][Ticket.values().length];
+		for (int i = 0; i < colours.length; i++) {
+			locations[i] = i == 0 ? mrXLocation : view.getPlayerLocation(colours[i]);
+			for (Ticket ticket : Ticket.values())
+				tickets[i][ticket.ordinal()] = view.getPlayerTickets(colours[i], ticket);
+		}
+		Setup setup = new Setup(ScotlandYardEngine.toArray(view.getRounds()), colours,
+				neighbours);
+		return create(setup, locations, tickets, view.getCurrentRound(),
+				players.indexOf(view.getCurrentPlayer()), view.getPlayerLocation(Black));
+	}
+
+	/**
+	 * Appends the valid moves of the current player to the buffer, see
+	 * {@link ScotlandYardEngine#generateMoves(MoveBuffer)}
+	 *
+	 * @param out the buffer; not null
+	 */
+	public void generateMoves(MoveBuffer out) {
+		if (status != ONGOING) return;
+		int size = out.size();
+		setup.generator.get().generate(setup.colours[current], locations[current],
+				tickets[current], MoveGenerator.doubleAllowed(round, setup.rounds.length),
+				occupied, out);
+		if (current != 0 && out.size() == size) out.add(PackedMove.pass(setup.colours[current]));
+	}
+
+	/**
+	 * Applies a {@link Move}, see {@link #advance(int)}
+	 *
+	 * @param move the move; not null
+	 * @return the new state; never null
+	 */
+	public GameState advance(Move move) {
+		return advance(PackedMove.fromMove(move));
+	}
+
+	/**
+	 * Creates the state after the current player plays the packed move, this
+	 * state is not modified
+	 *
+	 * @param move the packed move, should be one of the moves from
+	 *        {@link #generateMoves(MoveBuffer)}
+	 * @return the new state; never null
+	 * @throws IllegalStateException if the game is over
+	 * @throws IllegalArgumentException if the move is not for the current
+	 *         player
+	 */
+	public GameState advance(int move) {
+		if (status != ONGOING) throw new IllegalStateException("Game over");
+		if (PackedMove.colour(move) != setup.colours[current])
+			throw new IllegalArgumentException(PackedMove.toString(move) + " is not for "
+					+ setup.colours[current]);
+		int[] locations = this.locations.clone();
+		int[][] tickets = this.tickets.clone();
+		long[] occupied = this.occupied;
+		int round = this.round;
+		int current = this.current;
+		int lastKnownLocation = this.lastKnownLocation;
+		int status = ONGOING;
+
+		if (current == 0) {
+			if (PackedMove.isPass(move)) throw new IllegalArgumentException("MrX cannot pass");
+			int[] wallet = tickets[0] = tickets[0].clone();
+			int moves = 1;
+			if (PackedMove.isDouble(move)) {
+				wallet[DOUBLE]--;
+				moves = 2;
+			}
+			for (int i = 0; i < moves; i++) {
+				Ticket ticket = i == 0 ? PackedMove.firstTicket(move) : PackedMove.secondTicket(move);
+				int destination = i == 0 ? PackedMove.firstDestination(move)
+						: PackedMove.secondDestination(move);
+				wallet[ticket.ordinal()]--;
+				locations[0] = destination;
+				if (setup.rounds[round]) lastKnownLocation = destination;
+				round++;
+			}
+			current = 1;
+		} else {
+			boolean captured = false;
+			if (!PackedMove.isPass(move)) {
+				int ticket = PackedMove.firstTicket(move).ordinal();
+				int destination = PackedMove.firstDestination(move);
+				(tickets[current] = tickets[current].clone())[ticket]--;
+				(tickets[0] = tickets[0].clone())[ticket]++;
+				occupied = occupied.clone();
+				Bitboards.clear(occupied, locations[current]);
+				Bitboards.set(occupied, destination);
+				locations[current] = destination;
+				captured = destination == locations[0] && round > 0;
+			}
+			if (captured) status = DETECTIVES_WON;
+			else if (++current == setup.colours.length) {
+				current = 0;
+				status = rotationEnd(setup, locations, tickets, occupied, round);
+			}
+		}
+		return new GameState(setup, locations, tickets, occupied, round, current,
+				lastKnownLocation, status);
+	}
+
+	private static int rotationEnd(Setup setup, int[] locations, int[][] tickets,
+			long[] occupied, int round) {
+		MoveGenerator generator = setup.generator.get();
+		return ScotlandYardEngine.rotationEnd(round, setup.rounds.length, locations.length,
+				i -> generator.canMove(locations[i], tickets[i], occupied));
+	}
+
+	/**
+	 * Creates a mutable engine at this position for in-place search
+	 *
+	 * @return the engine with an empty undo stack; never null
+	 */
+	public ScotlandYardEngine toEngine() {
+		int[][] ticketsCopy = new int[tickets.length][];
+		for (int i = 0; i < tickets.length; i++)
+			ticketsCopy[i] = tickets[i].clone();
+		ScotlandYardEngine engine = new ScotlandYardEngine(setup.rounds, setup.neighbours,
+				setup.colours, locations.clone(), ticketsCopy, round, current, lastKnownLocation);
+		engine.status(status);
+		return engine;
+	}
+
+	/**
+	 * @return the colours of the players in order of play; never null
+	 */
+	public List<Colour> players() {
+		return Collections.unmodifiableList(Arrays.asList(setup.colours));
+	}
+
+	/**
+	 * @return the colour of the player to move; never null
+	 */
+	public Colour currentPlayer() {
+		return setup.colours[current];
+	}
+
+	/**
+	 * @return the current round, see {@link ScotlandYardView#getCurrentRound()}
+	 */
+	public int currentRound() {
+		return round;
+	}
+
+	/**
+	 * @return the number of rounds in the game
+	 */
+	public int roundCount() {
+		return setup.rounds.length;
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @return the actual location of the player, including MrX
+	 */
+	public int location(Colour colour) {
+		return locations[index(colour)];
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @param ticket the ticket; not null
+	 * @return the ticket count of the player
+	 */
+	public int tickets(Colour colour, Ticket ticket) {
+		return tickets[index(colour)][ticket.ordinal()];
+	}
+
+	/**
+	 * @return the location MrX was last revealed at, or 0 if never revealed
+	 */
+	public int lastKnownLocation() {
+		return lastKnownLocation;
+	}
+
+	/**
+	 * @return true if the game is over
+	 */
+	public boolean isGameOver() {
+		return status != ONGOING;
+	}
+
+	/**
+	 * @return true if the game is over and MrX won
+	 */
+	public boolean isMrXWinner() {
+		return status == MRX_WON;
+	}
+
+	/**
+	 * @return true if the game is over and the detectives won
+	 */
+	public boolean isDetectiveWinner() {
+		return status == DETECTIVES_WON;
+	}
+
+	/**
+	 * @return the winning colours, see
+	 *         {@link ScotlandYardView#getWinningPlayers()}; never null
+	 */
+	public Set<Colour> getWinningPlayers() {
+		Set<Colour> winners = EnumSet.noneOf(Colour.class);
+		if (status == MRX_WON) winners.add(Black);
+		if (status == DETECTIVES_WON)
+			winners.addAll(Arrays.asList(setup.colours).subList(1, setup.colours.length));
+		return Collections.unmodifiableSet(winners);
+	}
+
+	boolean isRevealRound(int round) {
+		return setup.rounds[round];
+	}
+
+	int status() {
+		return status;
+	}
+
+	private int index(Colour colour) {
+		int index = setup.indices[colour.ordinal()];
+		if (index == -1) throw new IllegalArgumentException(colour + " is not playing");
+		return index;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		GameState that = (GameState) o;
+		return round == that.round && current == that.current
+				&& lastKnownLocation == that.lastKnownLocation && status == that.status
+				&& Arrays.equals(setup.colours, that.setup.colours)
+				&& Arrays.equals(setup.rounds, that.setup.rounds)
+				&& Arrays.equals(locations, that.locations)
+				&& Arrays.deepEquals(tickets, that.tickets);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Arrays.hashCode(locations);
+		result = 31 * result + Arrays.deepHashCode(tickets);
+		result = 31 * result + round;
+		result = 31 * result + current;
+		result = 31 * result + lastKnownLocation;
+		return 31 * result + status;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("GameState{");
+		sb.append("round=").append(round);
+		sb.append(", current=").append(setup.colours[current]);
+		sb.append(", locations=").append(Arrays.toString(locations));
+		sb.append(", lastKnownLocation=").append(lastKnownLocation);
+		sb.append(", status=").append(status);
+		sb.append('}');
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,247 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.DETECTIVES_WON;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.ONGOING;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A compact binary form of {@link GameState}s and {@link PackedMove} lists,
+ * read and written directly on {@link ByteBuffer}s without intermediate
+ * objects. A standard six player position takes about 40 bytes:
+ *
+ * <pre>
+ * version                 1 byte
+ * round count             varint
+ * reveal rounds           1 bit per round, rounded up to bytes
+ * players | status << 4   1 byte
+ * colour ordinals         1 nibble per player, rounded up to bytes
+ * current round           varint
+ * current player index    1 byte
+ * last known location     varint
+ * per player:
+ *   location              varint
+ *   ticket counts         1 nibble per ticket in ordinal order, 3 bytes,
+ *                         followed by a varint of count - 15 for every
+ *                         nibble of 15
+ * </pre>
+ *
+ * Varints are unsigned LEB128, seven bits per byte, least significant
+ * group first. The graph is not part of the encoding, it is supplied again
+ * as a {@link NeighbourTable} when reading.
+ *
+ * <br>
+ * Move lists are a varint count followed by one varint per packed move.
+ *
+ * <br>
+ * Reading advances the buffer's position past the encoding; reading
+ * malformed input throws {@link IllegalArgumentException} or
+ * {@link BufferUnderflowException} and leaves the position undefined.
+ */
+public final class GameStateCodec {
+
+	/**
+	 * The version written as the first byte of every encoded state
+	 */
+	public static final int VERSION = 1;
+
+	private static final int TICKETS = Ticket.values().length;
+	private static final int TICKET_BYTES = (TICKETS + 1) / 2;
+	private static final int ESCAPE = 0xf;
+
+	private GameStateCodec() {}
+
+	/**
+	 * Writes a state at the buffer's position
+	 *
+	 * @param state the state; not null
+	 * @param out the buffer; not null
+	 * @throws java.nio.BufferOverflowException if the buffer is too small,
+	 *         see {@link #encodedSize(GameState)}
+	 */
+	public static void write(GameState state, ByteBuffer out) {
+		requireNonNull(state);
+		requireNonNull(out);
+		out.put((byte) VERSION);
+		int rounds = state.roundCount();
+		putVarint(out, rounds);
+		for (int from = 0; from < rounds; from += 8) {
+			int bits = 0;
+			for (int i = from; i < Math.min(from + 8, rounds); i++)
+				if (state.isRevealRound(i)) bits |= 1 << (i - from);
+			out.put((byte) bits);
+		}
+		Colour[] colours = state.players().toArray(new Colour[0]);
+		out.put((byte) (colours.length | state.status() << 4));
+		for (int i = 0; i < colours.length; i += 2) {
+			int high = i + 1 < colours.length ? colours[i + 1].ordinal() : 0;
+			out.put((byte) (colours[i].ordinal() | high << 4));
+		}
+		putVarint(out, state.currentRound());
+		out.put((byte) state.players().indexOf(state.currentPlayer()));
+		putVarint(out, state.lastKnownLocation());
+		for (Colour colour : colours) {
+			putVarint(out, state.location(colour));
+			for (int i = 0; i < TICKETS; i += 2) {
+				int low = nibble(state, colour, i);
+				int high = i + 1 < TICKETS ? nibble(state, colour, i + 1) : 0;
+				out.put((byte) (low | high << 4));
+			}
+			for (Ticket ticket : Ticket.values()) {
+				int count = state.tickets(colour, ticket);
+				if (count >= ESCAPE) putVarint(out, count - ESCAPE);
+			}
+		}
+	}
+
+	private static int nibble(GameState state, Colour colour, int ticket) {
+		return Math.min(state.tickets(colour, Ticket.values()[ticket]), ESCAPE);
+	}
+
+	/**
+	 * Reads a state written by {@link #write(GameState, ByteBuffer)} from the
+	 * buffer's position
+	 *
+	 * @param in the buffer; not null
+	 * @param neighbours the neighbour table of the graph the game is played
+	 *        on; not null
+	 * @return the state; never null
+	 */
+	public static GameState read(ByteBuffer in, NeighbourTable neighbours) {
+		requireNonNull(in);
+		requireNonNull(neighbours);
+		int version = in.get() & 0xff;
+		if (version != VERSION)
+			throw new IllegalArgumentException("Unsupported version " + version);
+		int roundCount = getVarint(in);
+		boolean[] rounds = new boolean[roundCount];
+		for (int from = 0; from < roundCount; from += 8) {
+			int bits = in.get();
+			for (int i = from; i < Math.min(from + 8, roundCount); i++)
+				rounds[i] = (bits & 1 << (i - from)) != 0;
+		}
+		int header = in.get() & 0xff;
+		int players = header & 0xf;
+		int status = header >>> 4;
+		if (players > Colour.values().length)
+			throw new IllegalArgumentException("Invalid player count " + players);
+		if (status < ONGOING || status > DETECTIVES_WON)
+			throw new IllegalArgumentException("Invalid status " + status);
+		Colour[] colours = new Colour[players];
+		for (int i = 0; i < players; i += 2) {
+			int bits = in.get();
+			colours[i] = colour(bits & 0xf);
+			if (i + 1 < players) colours[i + 1] = colour(bits >>> 4 & 0xf);
+		}
+		int round = getVarint(in);
+		if (round > roundCount) throw new IllegalArgumentException("Invalid round " + round);
+		int current = in.get() & 0xff;
+		int lastKnownLocation = location(getVarint(in), neighbours, true);
+		int[] locations = new int[players];
+		int[][] tickets = new int[players][TICKETS];
+		for (int player = 0; player < players; player++) {
+			locations[player] = location(getVarint(in), neighbours, false);
+			for (int i = 0; i < TICKETS; i += 2) {
+				int bits = in.get();
+				tickets[player][i] = bits & 0xf;
+				if (i + 1 < TICKETS) tickets[player][i + 1] = bits >>> 4 & 0xf;
+			}
+			for (int i = 0; i < TICKETS; i++)
+				if (tickets[player][i] == ESCAPE) tickets[player][i] += getVarint(in);
+		}
+		return GameState.restore(rounds, colours, neighbours, locations, tickets, round, current,
+				lastKnownLocation, status);
+	}
+
+	private static Colour colour(int ordinal) {
+		if (ordinal >= Colour.values().length)
+			throw new IllegalArgumentException("Invalid colour " + ordinal);
+		return Colour.values()[ordinal];
+	}
+
+	private static int location(int location, NeighbourTable neighbours, boolean zeroAllowed) {
+		if (location > neighbours.maxNode() || (location == 0 && !zeroAllowed))
+			throw new IllegalArgumentException("Invalid location " + location);
+		return location;
+	}
+
+	/**
+	 * @param state the state; not null
+	 * @return the exact number of bytes {@link #write(GameState, ByteBuffer)}
+	 *         writes for the state
+	 */
+	public static int encodedSize(GameState state) {
+		int rounds = state.roundCount();
+		int players = state.players().size();
+		int size = 1 + varintSize(rounds) + (rounds + 7) / 8 + 1 + (players + 1) / 2
+				+ varintSize(state.currentRound()) + 1 + varintSize(state.lastKnownLocation());
+		for (Colour colour : state.players()) {
+			size += varintSize(state.location(colour)) + TICKET_BYTES;
+			for (Ticket ticket : Ticket.values()) {
+				int count = state.tickets(colour, ticket);
+				if (count >= ESCAPE) size += varintSize(count - ESCAPE);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the moves of a buffer at the buffer's position
+	 *
+	 * @param moves the packed moves; not null
+	 * @param out the buffer; not null
+	 */
+	public static void writeMoves(MoveBuffer moves, ByteBuffer out) {
+		requireNonNull(moves);
+		requireNonNull(out);
+		putVarint(out, moves.size());
+		for (int i = 0; i < moves.size(); i++)
+			putVarint(out, moves.get(i));
+	}
+
+	/**
+	 * Reads moves written by {@link #writeMoves(MoveBuffer, ByteBuffer)} from
+	 * the buffer's position, appending them to a move buffer
+	 *
+	 * @param in the buffer; not null
+	 * @param moves the move buffer to append to; not null
+	 * @return the number of moves read
+	 */
+	public static int readMoves(ByteBuffer in, MoveBuffer moves) {
+		requireNonNull(in);
+		requireNonNull(moves);
+		int count = getVarint(in);
+		for (int i = 0; i < count; i++)
+			moves.add(getVarint(in));
+		return count;
+	}
+
+	static void putVarint(ByteBuffer out, int value) {
+		if (value < 0) throw new IllegalArgumentException("Negative varint " + value);
+		while ((value & ~0x7f) != 0) {
+			out.put((byte) (value & 0x7f | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	static int getVarint(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.get();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0) throw new IllegalArgumentException("Varint overflow");
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Varint too long");
+	}
+
+	static int varintSize(int value) {
+		return value == 0 ? 1 : (31 - Integer.numberOfLeadingZeros(value)) / 7 + 1;
+	}
+
+}
@@ -0,0 +1,241 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.ONGOING;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Double;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Secret;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * A validated game configuration that creates any number of
+ * {@link ScotlandYardModel}s. The configuration is checked, the graph is
+ * copied into an {@link ImmutableGraph} and its {@link NeighbourTable} is
+ * built once when the template is created; creating a game then only copies
+ * the locations and ticket counts of the players. Maps with node values too
+ * large for a {@link PackedMove} have no table, their games create moves
+ * straight from the graph. Games created with the
+ * configured locations also reuse the check for a game that is over before it
+ * starts and the initial {@link ScotlandYardView#getZobristKey()}.
+ *
+ * <br>
+ * Templates are immutable and can create games from any number of threads.
+ * The games themselves are independent of each other and, like any
+ * {@link ScotlandYardModel}, are not thread safe.
+ */
+public final class GameTemplate {
+
+	private final List<Boolean> rounds;
+	private final Graph<Integer, Transport> graph;
+	private final NeighbourTable neighbours;
+	private final int maxNode;
+	private final Colour[] colours;
+	private final List<Colour> players;
+	private final Player[] configuredPlayers;
+	private final int[] locations;
+	private final int[][] tickets;
+	private final boolean overAtStart;
+	private final long zobristKey;
+
+	/**
+	 * Creates a template, see
+	 * {@link ScotlandYardGameFactory#createGame(List, Graph, PlayerConfiguration, PlayerConfiguration, PlayerConfiguration...)}
+	 * for the parameters. The configurations are validated like
+	 * {@link ScotlandYardModel} validates them.
+	 */
+	public GameTemplate(List<Boolean> rounds, Graph<Integer, Transport> graph,
+			PlayerConfiguration mrX, PlayerConfiguration firstDetective,
+			PlayerConfiguration... restOfTheDetectives) {
+		requireNonNull(rounds);
+		requireNonNull(graph);
+		List<PlayerConfiguration> configurations = new ArrayList<>();
+		configurations.add(requireNonNull(mrX));
+		configurations.add(requireNonNull(firstDetective));
+		for (PlayerConfiguration detective : restOfTheDetectives)
+			configurations.add(requireNonNull(detective));
+
+		if (rounds.isEmpty()) throw new IllegalArgumentException("Empty rounds");
+		if (graph.isEmpty()) throw new IllegalArgumentException("Empty map (graph)");
+		if (mrX.colour != Black) throw new IllegalArgumentException("MrX should be Black");
+
+		int[] locations = configurations.stream().mapToInt(p -> p.location).toArray();
+		checkDuplicateLocations(locations);
+		checkDuplicateColours(configurations);
+		checkPlayerTickets(configurations);
+
+		this.rounds = Collections.unmodifiableList(new ArrayList<>(rounds));
+		this.graph = new ImmutableGraph<>(graph);
+		this.maxNode = graph.getNodes().stream().mapToInt(Node::value).max().getAsInt();
+		this.neighbours = maxNode <= PackedMove.MAX_NODE ? new NeighbourTable(graph) : null;
+		this.colours = configurations.stream().map(p -> p.colour).toArray(Colour[]::new);
+		this.players = Collections.unmodifiableList(Arrays.asList(colours));
+		this.configuredPlayers = configurations.stream().map(p -> p.player)
+				.toArray(Player[]::new);
+		this.tickets = configurations.stream().map(p -> ScotlandYardEngine.toArray(p.tickets))
+				.toArray(int[][]::new);
+		this.locations = locations;
+		this.overAtStart = isOverAtStart(locations);
+		this.zobristKey = initialZobristKey(locations);
+	}
+
+	private static void checkDuplicateLocations(int[] locations) {
+		for (int i = 0; i < locations.length; i++)
+			for (int j = i + 1; j < locations.length; j++)
+				if (locations[i] == locations[j])
+					throw new IllegalArgumentException("Duplicate location");
+	}
+
+	private static void checkDuplicateColours(List<PlayerConfiguration> configurations) {
+		boolean[] seen = new boolean[Colour.values().length];
+		for (PlayerConfiguration player : configurations) {
+			if (seen[player.colour.ordinal()])
+				throw new IllegalArgumentException("Duplicate colour");
+			seen[player.colour.ordinal()] = true;
+		}
+	}
+
+	private static void checkPlayerTickets(List<PlayerConfiguration> configurations) {
+		for (PlayerConfiguration player : configurations) {
+			if (player.tickets.size() != Ticket.values().length)
+				throw new IllegalArgumentException("Player does not have required tickets");
+			if (player.colour == Black) continue;
+			if (player.tickets.get(Secret) != 0)
+				throw new IllegalArgumentException("Detective has a Secret ticket");
+			if (player.tickets.get(Double) != 0)
+				throw new IllegalArgumentException("Detective has a Double ticket");
+		}
+	}
+
+	/**
+	 * Creates a game with the configured players and locations
+	 *
+	 * @return a new game; never null
+	 */
+	public ScotlandYardModel newGame() {
+		return new ScotlandYardModel(this, configuredPlayers, locations, overAtStart, zobristKey);
+	}
+
+	/**
+	 * Creates a game with the configured locations and new players
+	 *
+	 * @param players gives the player of each colour, called in the order of
+	 *        {@link #getPlayers()}; not null and must not return null
+	 * @return a new game; never null
+	 */
+	public ScotlandYardModel newGame(Function<? super Colour, ? extends Player> players) {
+		return new ScotlandYardModel(this, players(players), locations, overAtStart, zobristKey);
+	}
+
+	/**
+	 * Creates a game with new players and new locations
+	 *
+	 * @param players gives the player of each colour, called in the order of
+	 *        {@link #getPlayers()}; not null and must not return null
+	 * @param locations the location of each player in the order of
+	 *        {@link #getPlayers()}; not null, distinct and in the graph
+	 * @return a new game; never null
+	 */
+	public ScotlandYardModel newGame(Function<? super Colour, ? extends Player> players,
+			int... locations) {
+		if (locations.length != colours.length)
+			throw new IllegalArgumentException("Expected " + colours.length + " locations");
+		for (int location : locations)
+			if (location < 1 || location > maxNode || !graph.containsNode(location))
+				throw new IllegalArgumentException("Invalid location " + location);
+		checkDuplicateLocations(locations);
+		int[] copy = locations.clone();
+		return new ScotlandYardModel(this, players(players), copy, isOverAtStart(copy),
+				initialZobristKey(copy));
+	}
+
+	private Player[] players(Function<? super Colour, ? extends Player> players) {
+		requireNonNull(players);
+		Player[] result = new Player[colours.length];
+		for (int i = 0; i < colours.length; i++)
+			result[i] = requireNonNull(players.apply(colours[i]), "Null player");
+		return result;
+	}
+
+	// the check ScotlandYardModel makes when created: all detectives stuck or
+	// MrX stuck
+	private boolean isOverAtStart(int[] locations) {
+		MoveSource moves = newMoveSource();
+		long[] occupied = newOccupied();
+		for (int i = 1; i < locations.length; i++)
+			Bitboards.set(occupied, locations[i]);
+		return ScotlandYardEngine.rotationEnd(0, rounds.size(), locations.length,
+				i -> moves.canMove(locations[i], tickets[i], occupied)) != ONGOING;
+	}
+
+	// the key of the view, which has MrX's last known location instead of his
+	// actual one
+	private long initialZobristKey(int[] locations) {
+		return Zobrist.of(colours, locations, tickets, ScotlandYardView.NOT_STARTED, 0, 0)
+				^ Zobrist.mrXLocation(locations[0]);
+	}
+
+	/**
+	 * @return the rounds of the games; never null and immutable
+	 */
+	public List<Boolean> getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * @return the graph of the games; never null and immutable
+	 */
+	public Graph<Integer, Transport> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the colours of the players, MrX first; never null and immutable
+	 */
+	public List<Colour> getPlayers() {
+		return players;
+	}
+
+	Player[] configuredPlayers() {
+		return configuredPlayers;
+	}
+
+	int[] locations() {
+		return locations;
+	}
+
+	boolean isOverAtStart() {
+		return overAtStart;
+	}
+
+	long zobristKey() {
+		return zobristKey;
+	}
+
+	// a source for one game, which may keep scratch space
+	MoveSource newMoveSource() {
+		return MoveSource.of(graph, neighbours);
+	}
+
+	// an empty bitboard of the nodes of the map
+	long[] newOccupied() {
+		return new long[Bitboards.wordsFor(maxNode)];
+	}
+
+	Colour[] colours() {
+		return colours;
+	}
+
+	int[] tickets(int player) {
+		return tickets[player];
+	}
+
+}
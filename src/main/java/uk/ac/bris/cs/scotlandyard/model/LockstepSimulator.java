@@ -0,0 +1,460 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.DETECTIVES_WON;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.MRX_WON;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.ONGOING;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Plays many random games side by side for bulk Monte Carlo statistics, such
+ * as how often MrX escapes from each start node. The games are held in flat
+ * primitive arrays indexed by game, and by player within a game, rather than
+ * in one object per game:
+ *
+ * <pre>
+ * locations  int[games * players]
+ * tickets    byte[games * players * tickets]
+ * round      int[games]
+ * status     byte[games]
+ * </pre>
+ *
+ * and the map is a compressed adjacency list: the distinct neighbours of node
+ * {@code n} are {@code targets[offsets[n]]} to
+ * {@code targets[offsets[n + 1] - 1]}, each with a mask of the tickets that
+ * reach it. {@link #step()} advances every live game by one ply in a single
+ * pass over the arrays, so there is no pointer chasing, no allocation and no
+ * {@link Move} or {@link MoveBuffer} involved. As every game starts at the
+ * beginning of a rotation and each ply is one player's move, all games are
+ * always waiting for the same player.
+ *
+ * <br>
+ * Every player picks uniformly among its valid single ticket moves, a
+ * detective that cannot move passes. Apart from MrX never playing a double
+ * move, the rules are those of {@link ScotlandYardEngine}: detectives hand
+ * used tickets to MrX, a detective moving onto MrX wins for the detectives,
+ * and the end of a rotation is checked with
+ * {@link ScotlandYardEngine#rotationEnd(int, int, int, java.util.function.IntPredicate)}.
+ * Ticket counts must stay below 128.
+ *
+ * <br>
+ * Every game has its own SplitMix64 generator seeded with
+ * {@link Seeds#game(long, long)}, so results only depend on the seed.
+ * Instances must not be shared between threads, split a batch across several
+ * simulators instead.
+ */
+public final class LockstepSimulator {
+
+	private static final int TICKETS = Ticket.values().length;
+	private static final int SECRET = Ticket.Secret.ordinal();
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	// the status of a game that has not been loaded, neither live nor over
+	private static final int NOT_LOADED = -1;
+
+	private final boolean[] rounds;
+	private final int players;
+	private final int games;
+	private final int maxNode;
+
+	// the map
+	private final int[] offsets;
+	private final int[] targets;
+	private final byte[] ticketMasks;
+
+	// the games
+	private final int[] locations;
+	private final byte[] tickets;
+	private final int[] round;
+	private final byte[] status;
+	private final int[] start;
+	private final long[] random;
+	private int current;
+	private int live;
+	// the first player of the game whose rotation end is checked
+	private int checkedBase;
+	private final IntPredicate canMove = player -> canMove(checkedBase, player);
+
+	/**
+	 * Creates a simulator, games have to be loaded with
+	 * {@link #load(int, GameState)} or {@link #loadAll(GameState)} before
+	 * running; games that are not loaded are skipped and never counted
+	 *
+	 * @param rounds the rounds; not null and not empty
+	 * @param neighbours the neighbour table of the map; not null
+	 * @param players the number of players of every game, MrX included;
+	 *        between 2 and the number of colours
+	 * @param games the number of games; one or greater
+	 */
+	public LockstepSimulator(List<Boolean> rounds, NeighbourTable neighbours, int players,
+			int games) {
+		requireNonNull(neighbours);
+		this.rounds = ScotlandYardEngine.toArray(requireNonNull(rounds));
+		if (this.rounds.length == 0) throw new IllegalArgumentException("Empty rounds");
+		if (players < 2 || players > Colour.values().length)
+			throw new IllegalArgumentException("Invalid number of players " + players);
+		if (games < 1) throw new IllegalArgumentException("games < 1");
+		this.players = players;
+		this.games = games;
+		this.maxNode = neighbours.maxNode();
+
+		this.offsets = new int[maxNode + 2];
+		int edges = 0;
+		for (int node = 0; node <= maxNode; node++)
+			edges += Bitboards.cardinality(neighbours.anyNeighbours(node));
+		this.targets = new int[edges];
+		this.ticketMasks = new byte[edges];
+		int edge = 0;
+		for (int node = 0; node <= maxNode; node++) {
+			offsets[node] = edge;
+			long[] any = neighbours.anyNeighbours(node);
+			for (int to = Bitboards.nextSetBit(any, 0); to >= 0;
+					to = Bitboards.nextSetBit(any, to + 1)) {
+				int mask = 0;
+				for (Transport transport : Transport.values()) {
+					Ticket ticket = Ticket.fromTransport(transport);
+					// boat edges need a secret ticket, which reaches every
+					// neighbour anyway
+					if (ticket != Ticket.Secret
+							&& Bitboards.contains(neighbours.neighbours(transport, node), to))
+						mask |= 1 << ticket.ordinal();
+				}
+				targets[edge] = to;
+				ticketMasks[edge] = (byte) mask;
+				edge++;
+			}
+		}
+		offsets[maxNode + 1] = edge;
+
+		this.locations = new int[games * players];
+		this.tickets = new byte[games * players * TICKETS];
+		this.round = new int[games];
+		this.status = new byte[games];
+		this.start = new int[games];
+		this.random = new long[games];
+		Arrays.fill(status, (byte) NOT_LOADED);
+		seed(0);
+	}
+
+	/**
+	 * Reseeds the generator of every game
+	 *
+	 * @param seed the seed of the run, game {@code g} is seeded with
+	 *        {@link Seeds#game(long, long)}
+	 */
+	public void seed(long seed) {
+		for (int game = 0; game < games; game++)
+			random[game] = Seeds.game(seed, game);
+	}
+
+	/**
+	 * Sets every game to the same position, see {@link #load(int, GameState)}
+	 *
+	 * @param state the position; not null
+	 */
+	public void loadAll(GameState state) {
+		current = 0;
+		for (int game = 0; game < games; game++)
+			load(game, state);
+	}
+
+	/**
+	 * Sets a game to a position, only between rotations as every game has to
+	 * wait for the same player
+	 *
+	 * @param game the index of the game
+	 * @param state the position; not null, with MrX to move and the same
+	 *        number of players as this simulator
+	 * @throws IllegalStateException if the games are in the middle of a
+	 *         rotation
+	 */
+	public void load(int game, GameState state) {
+		requireNonNull(state);
+		checkGame(game);
+		if (current != 0)
+			throw new IllegalStateException("Games are in the middle of a rotation");
+		if (state.players().size() != players)
+			throw new IllegalArgumentException("Expected " + players + " players");
+		if (state.currentPlayer() != Black)
+			throw new IllegalArgumentException("Games must start with MrX to move");
+		if (state.currentRound() > rounds.length)
+			throw new IllegalArgumentException("Invalid round " + state.currentRound());
+		List<Colour> colours = state.players();
+		for (int player = 0; player < players; player++) {
+			int location = state.location(colours.get(player));
+			if (location < 0 || location > maxNode)
+				throw new IllegalArgumentException("Invalid location " + location);
+			locations[game * players + player] = location;
+			for (Ticket ticket : Ticket.values()) {
+				int count = state.tickets(colours.get(player), ticket);
+				if (count > Byte.MAX_VALUE)
+					throw new IllegalArgumentException("Too many " + ticket + " tickets");
+				tickets[(game * players + player) * TICKETS + ticket.ordinal()] = (byte) count;
+			}
+		}
+		round[game] = state.currentRound();
+		start[game] = locations[game * players];
+		setStatus(game, state.isGameOver()
+				? (state.isMrXWinner() ? MRX_WON : DETECTIVES_WON)
+				: ONGOING);
+	}
+
+	/**
+	 * Moves MrX of a game before it starts, for example to compare start
+	 * nodes, and checks again whether the game is already over
+	 *
+	 * @param game the index of the game
+	 * @param location MrX's new location, not occupied by a detective
+	 * @throws IllegalStateException if the games are in the middle of a
+	 *         rotation
+	 */
+	public void setMrXLocation(int game, int location) {
+		checkGame(game);
+		if (status[game] == NOT_LOADED)
+			throw new IllegalStateException("Game " + game + " is not loaded");
+		if (current != 0)
+			throw new IllegalStateException("Games are in the middle of a rotation");
+		if (location < 1 || location > maxNode)
+			throw new IllegalArgumentException("Invalid location " + location);
+		if (occupied(game * players, location))
+			throw new IllegalArgumentException(location + " is occupied by a detective");
+		locations[game * players] = location;
+		start[game] = location;
+		setStatus(game, ONGOING);
+		checkRotationEnd(game);
+	}
+
+	/**
+	 * Plays one ply of every game that is not over
+	 *
+	 * @return true if any game is still going on afterwards
+	 */
+	public boolean step() {
+		if (live == 0) return false;
+		int player = current;
+		for (int game = 0; game < games; game++)
+			if (status[game] == ONGOING) move(game, player);
+		if (live > 0 && player + 1 < players) {
+			current = player + 1;
+		} else {
+			current = 0;
+			for (int game = 0; game < games; game++)
+				if (status[game] == ONGOING) checkRotationEnd(game);
+		}
+		return live > 0;
+	}
+
+	/**
+	 * Plays every game to the end
+	 *
+	 * @return the number of plies played
+	 */
+	public int run() {
+		int plies = 0;
+		while (live > 0) {
+			step();
+			plies++;
+		}
+		return plies;
+	}
+
+	private void move(int game, int player) {
+		int base = game * players;
+		int ticketBase = (base + player) * TICKETS;
+		int from = locations[base + player];
+		int available = 0;
+		for (int ticket = 0; ticket < TICKETS; ticket++)
+			if (tickets[ticketBase + ticket] > 0) available |= 1 << ticket;
+		boolean secret = player == 0 && (available & 1 << SECRET) != 0;
+
+		// reservoir sampling picks uniformly in a single pass
+		int seen = 0;
+		int destination = 0;
+		int used = 0;
+		for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+			int to = targets[edge];
+			if (occupied(base, to)) continue;
+			int mask = ticketMasks[edge] & available;
+			while (mask != 0) {
+				int ticket = Integer.numberOfTrailingZeros(mask);
+				mask &= mask - 1;
+				if (nextInt(game, ++seen) == 0) {
+					destination = to;
+					used = ticket;
+				}
+			}
+			if (secret && nextInt(game, ++seen) == 0) {
+				destination = to;
+				used = SECRET;
+			}
+		}
+
+		if (seen == 0) {
+			// detectives pass, MrX always has a move after the end of
+			// rotation checks
+			if (player == 0) setStatus(game, DETECTIVES_WON);
+			return;
+		}
+		tickets[ticketBase + used]--;
+		locations[base + player] = destination;
+		if (player == 0) {
+			round[game]++;
+		} else {
+			tickets[base * TICKETS + used]++;
+			if (destination == locations[base] && round[game] > 0)
+				setStatus(game, DETECTIVES_WON);
+		}
+	}
+
+	private void checkRotationEnd(int game) {
+		checkedBase = game * players;
+		setStatus(game, ScotlandYardEngine.rotationEnd(round[game], rounds.length, players,
+				canMove));
+	}
+
+	private boolean canMove(int base, int player) {
+		int ticketBase = (base + player) * TICKETS;
+		int available = 0;
+		for (int ticket = 0; ticket < TICKETS; ticket++)
+			if (tickets[ticketBase + ticket] > 0) available |= 1 << ticket;
+		boolean secret = player == 0 && (available & 1 << SECRET) != 0;
+		int from = locations[base + player];
+		for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+			if ((secret || (ticketMasks[edge] & available) != 0)
+					&& !occupied(base, targets[edge]))
+				return true;
+		}
+		return false;
+	}
+
+	// true if a detective of the game is at the node
+	private boolean occupied(int base, int node) {
+		for (int player = 1; player < players; player++)
+			if (locations[base + player] == node) return true;
+		return false;
+	}
+
+	private void setStatus(int game, int value) {
+		if (status[game] == ONGOING) live--;
+		if (value == ONGOING) live++;
+		status[game] = (byte) value;
+		// once every game is over the next ones can be loaded
+		if (live == 0) current = 0;
+	}
+
+	// a SplitMix64 step scaled to [0, bound)
+	private int nextInt(int game, int bound) {
+		long z = random[game] += GOLDEN_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		z ^= z >>> 31;
+		return (int) (((z >>> 32) * bound) >>> 32);
+	}
+
+	private void checkGame(int game) {
+		if (game < 0 || game >= games) throw new IndexOutOfBoundsException("Game " + game);
+	}
+
+	private void checkPlayer(int game, int player) {
+		checkGame(game);
+		if (player < 0 || player >= players)
+			throw new IndexOutOfBoundsException("Player " + player);
+	}
+
+	/**
+	 * @return the number of games
+	 */
+	public int games() {
+		return games;
+	}
+
+	/**
+	 * @return the number of games that are not over
+	 */
+	public int liveGames() {
+		return live;
+	}
+
+	/**
+	 * @param game the index of the game
+	 * @return true if the game is over, false if it was not loaded
+	 */
+	public boolean isGameOver(int game) {
+		checkGame(game);
+		return status[game] == MRX_WON || status[game] == DETECTIVES_WON;
+	}
+
+	/**
+	 * @param game the index of the game
+	 * @return true if the game is over and MrX won
+	 */
+	public boolean isMrXWinner(int game) {
+		checkGame(game);
+		return status[game] == MRX_WON;
+	}
+
+	/**
+	 * @param game the index of the game
+	 * @return the current round of the game, see
+	 *         {@link ScotlandYardView#getCurrentRound()}
+	 */
+	public int round(int game) {
+		checkGame(game);
+		return round[game];
+	}
+
+	/**
+	 * @param game the index of the game
+	 * @param player the index of the player, 0 is MrX
+	 * @return the actual location of the player
+	 */
+	public int location(int game, int player) {
+		checkPlayer(game, player);
+		return locations[game * players + player];
+	}
+
+	/**
+	 * @param game the index of the game
+	 * @param player the index of the player, 0 is MrX
+	 * @param ticket the ticket; not null
+	 * @return the ticket count of the player
+	 */
+	public int tickets(int game, int player, Ticket ticket) {
+		checkPlayer(game, player);
+		return tickets[(game * players + player) * TICKETS + ticket.ordinal()];
+	}
+
+	/**
+	 * @return the number of finished games MrX won
+	 */
+	public int mrXWins() {
+		int wins = 0;
+		for (int game = 0; game < games; game++)
+			if (status[game] == MRX_WON) wins++;
+		return wins;
+	}
+
+	/**
+	 * The ratio of finished games MrX won, by the node he started at
+	 *
+	 * @return the ratios indexed by node; {@link Double#NaN} for nodes where
+	 *         no finished game started; never null
+	 */
+	public double[] mrXWinRateByStart() {
+		int[] played = new int[maxNode + 1];
+		int[] won = new int[maxNode + 1];
+		for (int game = 0; game < games; game++) {
+			if (!isGameOver(game)) continue;
+			played[start[game]]++;
+			if (status[game] == MRX_WON) won[start[game]]++;
+		}
+		double[] rates = new double[maxNode + 1];
+		for (int node = 0; node <= maxNode; node++)
+			rates[node] = played[node] == 0 ? Double.NaN : (double) won[node] / played[node];
+		return rates;
+	}
+
+}
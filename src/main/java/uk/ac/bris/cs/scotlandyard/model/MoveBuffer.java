@@ -0,0 +1,126 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A growable buffer of moves packed with {@link PackedMove}. Buffers are
+ * meant to be cleared and refilled so move generation does not allocate once
+ * the buffer has grown to its working size.
+ */
+public final class MoveBuffer {
+
+	private int[] moves;
+	private int size;
+
+	/**
+	 * Creates an empty buffer with a default capacity
+	 */
+	public MoveBuffer() {
+		this(64);
+	}
+
+	/**
+	 * Creates an empty buffer
+	 *
+	 * @param capacity the initial capacity; greater than zero
+	 */
+	public MoveBuffer(int capacity) {
+		if (capacity <= 0) throw new IllegalArgumentException("capacity <= 0");
+		this.moves = new int[capacity];
+	}
+
+	/**
+	 * Appends a packed move, growing the buffer if needed
+	 *
+	 * @param move the packed move
+	 */
+	public void add(int move) {
+		if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+	}
+
+	/**
+	 * @param index the index; between 0 and {@link #size()} exclusive
+	 * @return the packed move at the index
+	 */
+	public int get(int index) {
+		if (index >= size) throw new IndexOutOfBoundsException(index + " >= " + size);
+		return moves[index];
+	}
+
+	/**
+	 * @return the number of moves in this buffer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this buffer has no moves
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Checks whether the packed move is in this buffer with a linear scan
+	 *
+	 * @param move the packed move
+	 * @return true if found
+	 */
+	public boolean contains(int move) {
+		for (int i = 0; i < size; i++)
+			if (moves[i] == move) return true;
+		return false;
+	}
+
+	/**
+	 * Removes all moves, the capacity is kept
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Truncates the buffer, used to drop moves appended after a mark
+	 *
+	 * @param size the new size; between 0 and {@link #size()}
+	 */
+	public void truncate(int size) {
+		if (size < 0 || size > this.size)
+			throw new IndexOutOfBoundsException(size + " not in 0.." + this.size);
+		this.size = size;
+	}
+
+	/**
+	 * @return a copy of the packed moves in this buffer; never null
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(moves, size);
+	}
+
+	/**
+	 * Converts all packed moves to {@link Move}s
+	 *
+	 * @return a new mutable set of moves; never null
+	 */
+	public Set<Move> toMoves() {
+		Set<Move> set = new HashSet<>(Math.max(16, size * 4 / 3 + 1));
+		for (int i = 0; i < size; i++)
+			set.add(PackedMove.toMove(moves[i]));
+		return set;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("MoveBuffer[");
+		for (int i = 0; i < size; i++) {
+			if (i != 0) sb.append(", ");
+			sb.append(PackedMove.toString(moves[i]));
+		}
+		return sb.append(']').toString();
+	}
+
+}
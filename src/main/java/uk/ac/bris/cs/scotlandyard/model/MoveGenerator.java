@@ -0,0 +1,145 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Double;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Secret;
+
+import java.util.Objects;
+
+/**
+ * Generates packed moves (see {@link PackedMove}) from a {@link NeighbourTable}
+ * without allocating. Instances hold scratch boards so they must not be
+ * shared between threads.
+ */
+public final class MoveGenerator {
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private final NeighbourTable neighbours;
+	private final long[] firstHops;
+	private final long[] secondHops;
+
+	/**
+	 * Creates a generator for the given table
+	 *
+	 * @param neighbours the neighbour table; not null and must not have nodes
+	 *        larger than {@link PackedMove#MAX_NODE}
+	 */
+	public MoveGenerator(NeighbourTable neighbours) {
+		this.neighbours = Objects.requireNonNull(neighbours);
+		if (neighbours.maxNode() > PackedMove.MAX_NODE) throw new IllegalArgumentException(
+				"Graph has nodes larger than " + PackedMove.MAX_NODE);
+		this.firstHops = new long[neighbours.words()];
+		this.secondHops = new long[neighbours.words()];
+	}
+
+	/**
+	 * @return the neighbour table of this generator; never null
+	 */
+	public NeighbourTable neighbours() {
+		return neighbours;
+	}
+
+	/**
+	 * Whether the rounds left allow a double move
+	 *
+	 * @param round the current round, see
+	 *        {@link ScotlandYardView#getCurrentRound()}
+	 * @param roundCount the total number of rounds
+	 * @return true if there are at least two rounds left
+	 */
+	public static boolean doubleAllowed(int round, int roundCount) {
+		return round <= roundCount - 2;
+	}
+
+	/**
+	 * Appends all valid ticket and double moves of a player to the buffer. No
+	 * pass move is added if the player cannot move.
+	 *
+	 * @param colour the colour of the player; not null
+	 * @param location the location of the player
+	 * @param tickets the ticket counts of the player indexed by
+	 *        {@link Ticket#ordinal()}; not null
+	 * @param doubleAllowed whether the rounds left allow a double move, see
+	 *        {@link #doubleAllowed(int, int)}
+	 * @param occupied the nodes that cannot be moved to; not null
+	 * @param out the buffer to append to; not null
+	 */
+	public void generate(Colour colour, int location, int[] tickets, boolean doubleAllowed,
+			long[] occupied, MoveBuffer out) {
+		boolean canDouble = doubleAllowed && tickets[Double.ordinal()] > 0;
+		// boat edges need a secret ticket, they are covered by the secret moves
+		for (Transport transport : TRANSPORTS) {
+			Ticket ticket = Ticket.fromTransport(transport);
+			if (ticket != Secret && tickets[ticket.ordinal()] > 0) {
+				addMoves(colour, ticket, neighbours.neighbours(transport, location), tickets,
+						canDouble, occupied, out);
+			}
+		}
+		if (tickets[Secret.ordinal()] > 0) {
+			addMoves(colour, Secret, neighbours.anyNeighbours(location), tickets, canDouble,
+					occupied, out);
+		}
+	}
+
+	/**
+	 * Whether a player has any valid ticket move, cheaper than generating all
+	 * moves since a player that can double move can also single move
+	 *
+	 * @param location the location of the player
+	 * @param tickets the ticket counts of the player indexed by
+	 *        {@link Ticket#ordinal()}; not null
+	 * @param occupied the nodes that cannot be moved to; not null
+	 * @return true if the player can move
+	 */
+	public boolean canMove(int location, int[] tickets, long[] occupied) {
+		for (Transport transport : TRANSPORTS) {
+			Ticket ticket = Ticket.fromTransport(transport);
+			if (ticket != Secret && tickets[ticket.ordinal()] > 0
+					&& Bitboards.andNot(neighbours.neighbours(transport, location), occupied,
+							firstHops))
+				return true;
+		}
+		return tickets[Secret.ordinal()] > 0
+				&& Bitboards.andNot(neighbours.anyNeighbours(location), occupied, firstHops);
+	}
+
+	private void addMoves(Colour colour, Ticket ticket, long[] reachable, int[] tickets,
+			boolean canDouble, long[] occupied, MoveBuffer out) {
+		if (!Bitboards.andNot(reachable, occupied, firstHops)) return;
+		for (int node = Bitboards.nextSetBit(firstHops, 0); node >= 0;
+				node = Bitboards.nextSetBit(firstHops, node + 1)) {
+			int firstMove = PackedMove.ticket(colour, ticket, node);
+			out.add(firstMove);
+			if (canDouble) addDoubleMoves(firstMove, ticket, node, tickets, occupied, out);
+		}
+	}
+
+	private void addDoubleMoves(int firstMove, Ticket first, int from, int[] tickets,
+			long[] occupied, MoveBuffer out) {
+		for (Transport transport : TRANSPORTS) {
+			Ticket ticket = Ticket.fromTransport(transport);
+			if (ticket != Secret && canFollow(first, ticket, tickets)) {
+				addSecondMoves(firstMove, ticket, neighbours.neighbours(transport, from), occupied,
+						out);
+			}
+		}
+		if (canFollow(first, Secret, tickets)) {
+			addSecondMoves(firstMove, Secret, neighbours.anyNeighbours(from), occupied, out);
+		}
+	}
+
+	private void addSecondMoves(int firstMove, Ticket ticket, long[] reachable, long[] occupied,
+			MoveBuffer out) {
+		if (!Bitboards.andNot(reachable, occupied, secondHops)) return;
+		for (int node = Bitboards.nextSetBit(secondHops, 0); node >= 0;
+				node = Bitboards.nextSetBit(secondHops, node + 1)) {
+			out.add(PackedMove.withSecond(firstMove, ticket, node));
+		}
+	}
+
+	// true if the second ticket is still available after using the first
+	private static boolean canFollow(Ticket first, Ticket second, int[] tickets) {
+		return tickets[second.ordinal()] >= (first == second ? 2 : 1);
+	}
+
+}
@@ -0,0 +1,151 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Double;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Secret;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.IntGraph;
+
+/**
+ * The valid moves of a player at a position, as {@link ScotlandYardModel}
+ * needs them. Maps whose node values fit a {@link PackedMove} use a
+ * {@link MoveGenerator}, larger maps, which would also need a quadratic
+ * {@link NeighbourTable}, create {@link Move}s straight from an
+ * {@link IntGraph}.
+ *
+ * <br>
+ * Sources may keep scratch space, every game needs one of its own.
+ */
+interface MoveSource {
+
+	/**
+	 * Whether a player has any valid ticket move
+	 *
+	 * @param location the location of the player
+	 * @param tickets the ticket counts of the player indexed by
+	 *        {@link Ticket#ordinal()}
+	 * @param occupied the nodes that cannot be moved to
+	 * @return true if the player can move
+	 */
+	boolean canMove(int location, int[] tickets, long[] occupied);
+
+	/**
+	 * The valid moves of a player, see
+	 * {@link AvailableMoveSet#AvailableMoveSet(MoveGenerator, Colour, int, int[], boolean, long[], boolean)}
+	 * for the parameters
+	 *
+	 * @return an immutable set of the moves, which does not change with the
+	 *         arrays; never null
+	 */
+	Set<Move> validMoves(Colour colour, int location, int[] tickets, boolean doubleAllowed,
+			long[] occupied, boolean passIfStuck);
+
+	/**
+	 * Creates a source for a graph, the table is only used if the node values
+	 * of the graph can be packed
+	 *
+	 * @param graph the graph
+	 * @param neighbours the neighbour table of the graph, null if the graph
+	 *        has node values larger than {@link PackedMove#MAX_NODE}
+	 * @return a new source; never null
+	 */
+	static MoveSource of(Graph<Integer, Transport> graph, NeighbourTable neighbours) {
+		if (neighbours != null) return new Packed(new MoveGenerator(neighbours));
+		return new Unpacked(IntGraph.copyOf(graph, Transport.class));
+	}
+
+	/**
+	 * Lazily enumerated packed moves, see {@link AvailableMoveSet}
+	 */
+	final class Packed implements MoveSource {
+
+		private final MoveGenerator generator;
+
+		Packed(MoveGenerator generator) {
+			this.generator = generator;
+		}
+
+		@Override
+		public boolean canMove(int location, int[] tickets, long[] occupied) {
+			return generator.canMove(location, tickets, occupied);
+		}
+
+		@Override
+		public Set<Move> validMoves(Colour colour, int location, int[] tickets,
+				boolean doubleAllowed, long[] occupied, boolean passIfStuck) {
+			return new AvailableMoveSet(generator, colour, location, tickets, doubleAllowed,
+					occupied, passIfStuck);
+		}
+	}
+
+	/**
+	 * Moves created eagerly from the edges of an {@link IntGraph}
+	 */
+	final class Unpacked implements MoveSource {
+
+		private static final Transport[] TRANSPORTS = Transport.values();
+
+		private final IntGraph<Transport> graph;
+
+		Unpacked(IntGraph<Transport> graph) {
+			this.graph = graph;
+		}
+
+		@Override
+		public boolean canMove(int location, int[] tickets, long[] occupied) {
+			for (int edge = graph.edgeStart(location); edge < graph.edgeEnd(location); edge++) {
+				if (!Bitboards.contains(occupied, graph.target(edge))
+						&& (tickets[ticket(edge).ordinal()] > 0 || tickets[Secret.ordinal()] > 0))
+					return true;
+			}
+			return false;
+		}
+
+		@Override
+		public Set<Move> validMoves(Colour colour, int location, int[] tickets,
+				boolean doubleAllowed, long[] occupied, boolean passIfStuck) {
+			boolean canDouble = doubleAllowed && tickets[Double.ordinal()] > 0;
+			Set<Move> moves = new HashSet<>();
+			for (int edge = graph.edgeStart(location); edge < graph.edgeEnd(location); edge++) {
+				int destination = graph.target(edge);
+				if (Bitboards.contains(occupied, destination)) continue;
+				for (Ticket first : tickets(edge)) {
+					if (tickets[first.ordinal()] == 0) continue;
+					moves.add(Moves.ticket(colour, first, destination));
+					if (canDouble) addDoubleMoves(colour, first, destination, tickets, occupied,
+							moves);
+				}
+			}
+			if (moves.isEmpty() && passIfStuck) moves.add(Moves.pass(colour));
+			return Collections.unmodifiableSet(moves);
+		}
+
+		private void addDoubleMoves(Colour colour, Ticket first, int from, int[] tickets,
+				long[] occupied, Set<Move> moves) {
+			for (int edge = graph.edgeStart(from); edge < graph.edgeEnd(from); edge++) {
+				int destination = graph.target(edge);
+				if (Bitboards.contains(occupied, destination)) continue;
+				for (Ticket second : tickets(edge)) {
+					if (tickets[second.ordinal()] >= (first == second ? 2 : 1))
+						moves.add(Moves.doubleMove(colour, first, from, second, destination));
+				}
+			}
+		}
+
+		// the ticket of the transport of an edge, secret for boats
+		private Ticket ticket(int edge) {
+			return Ticket.fromTransport(TRANSPORTS[graph.data(edge)]);
+		}
+
+		// the tickets that can be used on an edge
+		private Ticket[] tickets(int edge) {
+			Ticket ticket = ticket(edge);
+			return ticket == Secret ? new Ticket[] { Secret } : new Ticket[] { ticket, Secret };
+		}
+	}
+
+}
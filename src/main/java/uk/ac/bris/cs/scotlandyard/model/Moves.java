@@ -0,0 +1,130 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Factory for canonical {@link Move} instances. A {@link TicketMove} is one of
+ * a few thousand (colour, ticket, destination) combinations, so every one on
+ * the standard map is interned in a table and the same instance is handed out
+ * each time, and equality checks on the hot path reduce to an identity check.
+ * {@link DoubleMove}s have too large a domain to intern completely, they go
+ * through a small direct mapped cache instead. Destinations outside the table
+ * still work, they simply get a fresh instance.
+ *
+ * <br>
+ * All methods are thread-safe.
+ */
+public final class Moves {
+
+	/**
+	 * The largest destination that is interned
+	 */
+	static final int MAX_INTERNED_NODE = 255;
+
+	private static final int DOUBLE_CACHE_SIZE = 1 << 12;
+
+	private static final Colour[] COLOURS = Colour.values();
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private static final PassMove[] PASSES = new PassMove[COLOURS.length];
+	// the table is filled lazily, moves are immutable so a racing thread can
+	// at worst create a duplicate that is replaced shortly after
+	private static final TicketMove[] TICKET_MOVES =
+			new TicketMove[COLOURS.length * TICKETS.length * (MAX_INTERNED_NODE + 1)];
+	private static final DoubleMove[] DOUBLE_MOVES = new DoubleMove[DOUBLE_CACHE_SIZE];
+
+	static {
+		for (Colour colour : COLOURS)
+			PASSES[colour.ordinal()] = new PassMove(colour);
+	}
+
+	private Moves() {}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @return the canonical pass move of the player; never null
+	 */
+	public static PassMove pass(Colour colour) {
+		return PASSES[colour.ordinal()];
+	}
+
+	/**
+	 * Returns a ticket move, interned if the destination is at most
+	 * {@link #MAX_INTERNED_NODE}
+	 *
+	 * @param colour the colour of the player; not null
+	 * @param ticket the ticket; not null
+	 * @param destination the destination of the move
+	 * @return the move; never null
+	 */
+	public static TicketMove ticket(Colour colour, Ticket ticket, int destination) {
+		requireNonNull(colour);
+		requireNonNull(ticket);
+		if (destination < 0 || destination > MAX_INTERNED_NODE)
+			return new TicketMove(colour, ticket, destination);
+		int index = (colour.ordinal() * TICKETS.length + ticket.ordinal()) * (MAX_INTERNED_NODE + 1)
+				+ destination;
+		TicketMove move = TICKET_MOVES[index];
+		if (move == null) {
+			move = new TicketMove(colour, ticket, destination);
+			TICKET_MOVES[index] = move;
+		}
+		return move;
+	}
+
+	/**
+	 * Returns a double move made of interned ticket moves, recently used double
+	 * moves are returned from a cache
+	 *
+	 * @param colour the colour of the player; not null
+	 * @param first the ticket of the first move; not null
+	 * @param firstDestination the destination of the first move
+	 * @param second the ticket of the second move; not null
+	 * @param secondDestination the destination of the second move
+	 * @return the move; never null
+	 */
+	public static DoubleMove doubleMove(Colour colour, Ticket first, int firstDestination,
+			Ticket second, int secondDestination) {
+		TicketMove firstMove = ticket(colour, first, firstDestination);
+		TicketMove secondMove = ticket(colour, second, secondDestination);
+		int slot = mix(System.identityHashCode(firstMove) * 31 + System.identityHashCode(secondMove))
+				& (DOUBLE_CACHE_SIZE - 1);
+		DoubleMove move = DOUBLE_MOVES[slot];
+		if (move == null || move.firstMove() != firstMove || move.secondMove() != secondMove) {
+			move = new DoubleMove(colour, firstMove, secondMove);
+			DOUBLE_MOVES[slot] = move;
+		}
+		return move;
+	}
+
+	/**
+	 * Returns the canonical version of a move
+	 *
+	 * @param move the move; not null
+	 * @return an equal, interned or cached, move; never null
+	 */
+	public static Move canonical(Move move) {
+		requireNonNull(move);
+		if (move instanceof TicketMove) {
+			TicketMove ticket = (TicketMove) move;
+			return ticket(ticket.colour(), ticket.ticket(), ticket.destination());
+		}
+		if (move instanceof DoubleMove) {
+			DoubleMove doubleMove = (DoubleMove) move;
+			return doubleMove(doubleMove.colour(), doubleMove.firstMove().ticket(),
+					doubleMove.firstMove().destination(), doubleMove.secondMove().ticket(),
+					doubleMove.finalDestination());
+		}
+		if (move instanceof PassMove) return pass(move.colour());
+		return move;
+	}
+
+	// spreads the bits so neighbouring moves land in different slots
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+}
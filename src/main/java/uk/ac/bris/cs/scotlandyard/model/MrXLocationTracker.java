@@ -0,0 +1,154 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * A {@link Spectator} that keeps the set of nodes MrX could be at, as far as
+ * the detectives know. The set is reset to MrX's location whenever he is
+ * revealed; on hidden rounds every candidate is moved along the edges the
+ * ticket MrX used allows and nodes occupied by detectives are removed. Nodes
+ * detectives move to are removed as well, MrX would have been caught there.
+ *
+ * <br>
+ * The candidates are kept as a bitboard (see {@link Bitboards}) and replaced
+ * on each update, so reads are cheap and safe from any thread, e.g. from a
+ * detective AI running on another thread.
+ */
+public final class MrXLocationTracker implements Spectator {
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private final NeighbourTable neighbours;
+	private final long[] empty;
+	private volatile long[] candidates;
+
+	/**
+	 * Creates a tracker where MrX could start at any node of the graph
+	 *
+	 * @param graph the graph of the game; not null
+	 */
+	public MrXLocationTracker(Graph<Integer, Transport> graph) {
+		this(new NeighbourTable(requireNonNull(graph)), nodes(graph));
+	}
+
+	/**
+	 * Creates a tracker
+	 *
+	 * @param neighbours the neighbour table of the graph of the game; not null
+	 * @param startLocations the nodes MrX could start at, for example
+	 *        {@link StandardGame#MRX_LOCATIONS}; not null
+	 */
+	public MrXLocationTracker(NeighbourTable neighbours, Collection<Integer> startLocations) {
+		this.neighbours = requireNonNull(neighbours);
+		this.empty = new long[neighbours.words()];
+		long[] board = new long[neighbours.words()];
+		for (int location : requireNonNull(startLocations))
+			Bitboards.set(board, location);
+		this.candidates = board;
+	}
+
+	private static Set<Integer> nodes(Graph<Integer, Transport> graph) {
+		Set<Integer> nodes = new TreeSet<>();
+		for (Node<Integer> node : graph.getNodes())
+			nodes.add(node.value());
+		return nodes;
+	}
+
+	@Override
+	public void onMoveMade(ScotlandYardView view, Move move) {
+		// double moves are followed by an event for each of their ticket moves
+		if (!(move instanceof TicketMove)) return;
+		TicketMove ticketMove = (TicketMove) move;
+		if (move.colour() == Black) onMrXMove(view, ticketMove);
+		else onDetectiveMove(ticketMove);
+	}
+
+	// the round has already been incremented when MrX's move is reported
+	private void onMrXMove(ScotlandYardView view, TicketMove move) {
+		int round = view.getCurrentRound() - 1;
+		long[] next = new long[neighbours.words()];
+		if (round >= 0 && round < view.getRounds().size() && view.getRounds().get(round)) {
+			Bitboards.set(next, move.destination());
+		} else {
+			long[] current = candidates;
+			for (int node = Bitboards.nextSetBit(current, 0); node != -1;
+					node = Bitboards.nextSetBit(current, node + 1))
+				or(next, reachable(node, move.ticket()));
+			for (Colour colour : view.getPlayers()) {
+				if (colour != Black) Bitboards.clear(next, view.getPlayerLocation(colour));
+			}
+		}
+		candidates = next;
+	}
+
+	private void onDetectiveMove(TicketMove move) {
+		if (!Bitboards.contains(candidates, move.destination())) return;
+		long[] next = candidates.clone();
+		Bitboards.clear(next, move.destination());
+		candidates = next;
+	}
+
+	// the nodes reachable from a node with a ticket, ignoring occupation
+	private long[] reachable(int node, Ticket ticket) {
+		if (ticket == Ticket.Secret) return neighbours.anyNeighbours(node);
+		for (Transport transport : TRANSPORTS) {
+			if (Ticket.fromTransport(transport) == ticket) return neighbours.neighbours(transport, node);
+		}
+		return empty;
+	}
+
+	private static void or(long[] into, long[] board) {
+		for (int i = 0; i < into.length; i++)
+			into[i] |= board[i];
+	}
+
+	/**
+	 * @param node the node
+	 * @return true if MrX could be at the node
+	 */
+	public boolean isCandidate(int node) {
+		return Bitboards.contains(candidates, node);
+	}
+
+	/**
+	 * @return the number of nodes MrX could be at
+	 */
+	public int candidateCount() {
+		return Bitboards.cardinality(candidates);
+	}
+
+	/**
+	 * @return a copy of the bitboard of nodes MrX could be at; never null
+	 */
+	public long[] candidateBoard() {
+		return candidates.clone();
+	}
+
+	/**
+	 * @return the nodes MrX could be at in ascending order; immutable and
+	 *         never null
+	 */
+	public Set<Integer> candidates() {
+		long[] current = candidates;
+		Set<Integer> nodes = new TreeSet<>();
+		for (int node = Bitboards.nextSetBit(current, 0); node != -1;
+				node = Bitboards.nextSetBit(current, node + 1))
+			nodes.add(node);
+		return Collections.unmodifiableSet(nodes);
+	}
+
+	@Override
+	public String toString() {
+		return "MrXLocationTracker" + candidates();
+	}
+
+}
@@ -0,0 +1,91 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Objects;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * Neighbour bitboards of every node for every {@link Transport}, precomputed
+ * from a game graph. See {@link Bitboards} for the board layout.
+ */
+public final class NeighbourTable {
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private final int words;
+	private final long[][][] neighbours;
+	private final long[][] anyNeighbours;
+	private final long[] empty;
+
+	/**
+	 * Creates the table from a graph
+	 *
+	 * @param graph the graph; not null and all node values must not be
+	 *        negative
+	 */
+	public NeighbourTable(Graph<Integer, Transport> graph) {
+		Objects.requireNonNull(graph);
+		int maxNode = 0;
+		for (Node<Integer> node : graph.getNodes()) {
+			if (node.value() < 0)
+				throw new IllegalArgumentException("Negative node value " + node.value());
+			maxNode = Math.max(maxNode, node.value());
+		}
+		this.words = Bitboards.wordsFor(maxNode);
+		this.empty = new long[words];
+		this.neighbours = new long[TRANSPORTS.length][maxNode + 1][];
+		this.anyNeighbours = new long[maxNode + 1][];
+		for (int node = 0; node <= maxNode; node++) {
+			anyNeighbours[node] = new long[words];
+			for (long[][] byNode : neighbours)
+				byNode[node] = new long[words];
+		}
+		for (Edge<Integer, Transport> edge : graph.getEdges()) {
+			int source = edge.source().value();
+			int destination = edge.destination().value();
+			Bitboards.set(neighbours[edge.data().ordinal()][source], destination);
+			Bitboards.set(anyNeighbours[source], destination);
+		}
+	}
+
+	/**
+	 * @return the number of words in each board of this table
+	 */
+	public int words() {
+		return words;
+	}
+
+	/**
+	 * @return the largest node value this table holds
+	 */
+	public int maxNode() {
+		return anyNeighbours.length - 1;
+	}
+
+	/**
+	 * Neighbours of a node reachable with the given transport. The returned
+	 * board must not be modified.
+	 *
+	 * @param transport the transport; not null
+	 * @param node the node
+	 * @return the neighbours; empty if the node is not in the graph
+	 */
+	public long[] neighbours(Transport transport, int node) {
+		return node >= 0 && node < anyNeighbours.length ? neighbours[transport.ordinal()][node]
+				: empty;
+	}
+
+	/**
+	 * Neighbours of a node reachable with any transport. The returned board
+	 * must not be modified.
+	 *
+	 * @param node the node
+	 * @return the neighbours; empty if the node is not in the graph
+	 */
+	public long[] anyNeighbours(int node) {
+		return node >= 0 && node < anyNeighbours.length ? anyNeighbours[node] : empty;
+	}
+
+}
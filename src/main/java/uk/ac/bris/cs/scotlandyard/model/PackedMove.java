@@ -0,0 +1,216 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Objects;
+
+/**
+ * A collection of utility methods for moves packed into a single {@code int}.
+ * Packed moves are used where allocating a {@link Move} for every candidate is
+ * too expensive, they can be converted back with {@link #toMove(int)}.
+ *
+ * <br>
+ * Layout, from the least significant bit:
+ * <ul>
+ * <li>bits 0-10: first destination</li>
+ * <li>bits 11-21: second destination</li>
+ * <li>bits 22-24: first ticket, {@code ordinal + 1} or 0 for a pass move</li>
+ * <li>bits 25-27: second ticket, {@code ordinal + 1} or 0 for a single
+ * move</li>
+ * <li>bits 28-30: colour ordinal</li>
+ * </ul>
+ * Packed moves are never negative.
+ */
+public final class PackedMove {
+
+	/**
+	 * The largest destination a packed move can hold
+	 */
+	public static final int MAX_NODE = (1 << 11) - 1;
+
+	private static final int SECOND_DESTINATION_SHIFT = 11;
+	private static final int FIRST_TICKET_SHIFT = 22;
+	private static final int SECOND_TICKET_SHIFT = 25;
+	private static final int COLOUR_SHIFT = 28;
+	private static final int NODE_MASK = MAX_NODE;
+	private static final int FIELD_MASK = 0b111;
+
+	private static final Colour[] COLOURS = Colour.values();
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private PackedMove() {
+		// nope
+	}
+
+	/**
+	 * Packs a pass move
+	 *
+	 * @param colour the colour of the player; not null
+	 * @return the packed move
+	 */
+	public static int pass(Colour colour) {
+		return colour.ordinal() << COLOUR_SHIFT;
+	}
+
+	/**
+	 * Packs a ticket move
+	 *
+	 * @param colour the colour of the player; not null
+	 * @param ticket the ticket for this move; not null
+	 * @param destination the destination; between 0 and {@link #MAX_NODE}
+	 * @return the packed move
+	 */
+	public static int ticket(Colour colour, Ticket ticket, int destination) {
+		return pass(colour)
+				| (ticket.ordinal() + 1) << FIRST_TICKET_SHIFT
+				| checkNode(destination);
+	}
+
+	/**
+	 * Packs a double move
+	 *
+	 * @param colour the colour of the player; not null
+	 * @param first the first ticket; not null
+	 * @param firstDestination the first destination; between 0 and
+	 *        {@link #MAX_NODE}
+	 * @param second the second ticket; not null
+	 * @param secondDestination the second destination; between 0 and
+	 *        {@link #MAX_NODE}
+	 * @return the packed move
+	 */
+	public static int doubleMove(Colour colour, Ticket first, int firstDestination,
+			Ticket second, int secondDestination) {
+		return ticket(colour, first, firstDestination)
+				| (second.ordinal() + 1) << SECOND_TICKET_SHIFT
+				| checkNode(secondDestination) << SECOND_DESTINATION_SHIFT;
+	}
+
+	/**
+	 * Appends a second ticket move to a packed ticket move
+	 *
+	 * @param ticketMove the packed first move, must be a ticket move
+	 * @param second the second ticket; not null
+	 * @param secondDestination the second destination; between 0 and
+	 *        {@link #MAX_NODE}
+	 * @return the packed double move
+	 */
+	public static int withSecond(int ticketMove, Ticket second, int secondDestination) {
+		return ticketMove
+				| (second.ordinal() + 1) << SECOND_TICKET_SHIFT
+				| checkNode(secondDestination) << SECOND_DESTINATION_SHIFT;
+	}
+
+	private static int checkNode(int node) {
+		if (node < 0 || node > MAX_NODE)
+			throw new IllegalArgumentException("Node " + node + " cannot be packed");
+		return node;
+	}
+
+	/**
+	 * @param move the packed move
+	 * @return the colour of the player making the move; never null
+	 */
+	public static Colour colour(int move) {
+		return COLOURS[move >>> COLOUR_SHIFT & FIELD_MASK];
+	}
+
+	/**
+	 * @param move the packed move
+	 * @return true if the move is a pass move
+	 */
+	public static boolean isPass(int move) {
+		return (move >>> FIRST_TICKET_SHIFT & FIELD_MASK) == 0;
+	}
+
+	/**
+	 * @param move the packed move
+	 * @return true if the move is a double move
+	 */
+	public static boolean isDouble(int move) {
+		return (move >>> SECOND_TICKET_SHIFT & FIELD_MASK) != 0;
+	}
+
+	/**
+	 * @param move the packed move, must not be a pass move
+	 * @return the first (or only) ticket; never null
+	 */
+	public static Ticket firstTicket(int move) {
+		return TICKETS[(move >>> FIRST_TICKET_SHIFT & FIELD_MASK) - 1];
+	}
+
+	/**
+	 * @param move the packed move, must not be a pass move
+	 * @return the first (or only) destination
+	 */
+	public static int firstDestination(int move) {
+		return move & NODE_MASK;
+	}
+
+	/**
+	 * @param move the packed move, must be a double move
+	 * @return the second ticket; never null
+	 */
+	public static Ticket secondTicket(int move) {
+		return TICKETS[(move >>> SECOND_TICKET_SHIFT & FIELD_MASK) - 1];
+	}
+
+	/**
+	 * @param move the packed move, must be a double move
+	 * @return the second destination
+	 */
+	public static int secondDestination(int move) {
+		return move >>> SECOND_DESTINATION_SHIFT & NODE_MASK;
+	}
+
+	/**
+	 * @param move the packed move, must not be a pass move
+	 * @return the destination the player ends up at
+	 */
+	public static int finalDestination(int move) {
+		return isDouble(move) ? secondDestination(move) : firstDestination(move);
+	}
+
+	/**
+	 * Converts a packed move to a {@link Move}, instances come from {@link Moves}
+	 *
+	 * @param move the packed move
+	 * @return the move; never null
+	 */
+	public static Move toMove(int move) {
+		Colour colour = colour(move);
+		if (isPass(move)) return Moves.pass(colour);
+		if (!isDouble(move)) return Moves.ticket(colour, firstTicket(move), firstDestination(move));
+		return Moves.doubleMove(colour, firstTicket(move), firstDestination(move),
+				secondTicket(move), secondDestination(move));
+	}
+
+	/**
+	 * Packs a {@link Move}
+	 *
+	 * @param move the move; not null
+	 * @return the packed move
+	 */
+	public static int fromMove(Move move) {
+		Objects.requireNonNull(move);
+		if (move instanceof TicketMove) {
+			TicketMove ticketMove = (TicketMove) move;
+			return ticket(move.colour(), ticketMove.ticket(), ticketMove.destination());
+		}
+		if (move instanceof DoubleMove) {
+			DoubleMove doubleMove = (DoubleMove) move;
+			return doubleMove(move.colour(),
+					doubleMove.firstMove().ticket(), doubleMove.firstMove().destination(),
+					doubleMove.secondMove().ticket(), doubleMove.secondMove().destination());
+		}
+		return pass(move.colour());
+	}
+
+	/**
+	 * Formats a packed move the same way as {@link Move#toString()}
+	 *
+	 * @param move the packed move
+	 * @return the formatted move; never null
+	 */
+	public static String toString(int move) {
+		return toMove(move).toString();
+	}
+
+}
@@ -0,0 +1,280 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * Move generation counters in the style of chess "perft". {@code perft}
+ * counts the positions reachable in exactly a number of plies, where a ply is
+ * one move of one player. Games that end earlier contribute nothing, as the
+ * game over position has no moves. {@code divide} splits the count by root
+ * move, so two implementations can be compared move by move to find where
+ * they disagree.
+ *
+ * <br>
+ * {@link #divide(List, Graph, int, PlayerConfiguration, PlayerConfiguration, PlayerConfiguration...)}
+ * drives a real {@link ScotlandYardModel} and is the reference for the
+ * engines, it replays the game from the start for every node so it is only
+ * usable at small depths.
+ */
+public final class Perft {
+
+	/**
+	 * The result of a timed perft run
+	 */
+	public static final class Result {
+
+		private final int depth;
+		private final long nodes;
+		private final long nanos;
+
+		private Result(int depth, long nodes, long nanos) {
+			this.depth = depth;
+			this.nodes = nodes;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return the depth searched
+		 */
+		public int depth() {
+			return depth;
+		}
+
+		/**
+		 * @return the number of leaf positions
+		 */
+		public long nodes() {
+			return nodes;
+		}
+
+		/**
+		 * @return the wall clock time in nanoseconds
+		 */
+		public long nanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the throughput in leaf positions per second
+		 */
+		public double nodesPerSecond() {
+			return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Perft{depth=%d, nodes=%d, nodes/s=%.0f}", depth, nodes,
+					nodesPerSecond());
+		}
+	}
+
+	private Perft() {}
+
+	/**
+	 * Counts the positions reachable from the engine's position in exactly
+	 * {@code depth} plies, the engine is left at its original position
+	 *
+	 * @param engine the engine; not null
+	 * @param depth the number of plies; zero or greater
+	 * @return the number of leaf positions
+	 */
+	public static long perft(ScotlandYardEngine engine, int depth) {
+		requireNonNull(engine);
+		checkDepth(depth);
+		return perft(engine, depth, buffers(depth));
+	}
+
+	private static long perft(ScotlandYardEngine engine, int depth, MoveBuffer[] buffers) {
+		if (depth == 0) return 1;
+		MoveBuffer moves = buffers[depth - 1];
+		moves.clear();
+		engine.generateMoves(moves);
+		if (depth == 1) return moves.size();
+		long nodes = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			engine.apply(moves.get(i));
+			nodes += perft(engine, depth - 1, buffers);
+			engine.undo();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Counts the positions reachable from a state in exactly {@code depth}
+	 * plies
+	 *
+	 * @param state the state; not null
+	 * @param depth the number of plies; zero or greater
+	 * @return the number of leaf positions
+	 */
+	public static long perft(GameState state, int depth) {
+		requireNonNull(state);
+		checkDepth(depth);
+		return perft(state, depth, buffers(depth));
+	}
+
+	private static long perft(GameState state, int depth, MoveBuffer[] buffers) {
+		if (depth == 0) return 1;
+		MoveBuffer moves = buffers[depth - 1];
+		moves.clear();
+		state.generateMoves(moves);
+		if (depth == 1) return moves.size();
+		long nodes = 0;
+		for (int i = 0; i < moves.size(); i++)
+			nodes += perft(state.advance(moves.get(i)), depth - 1, buffers);
+		return nodes;
+	}
+
+	/**
+	 * Splits {@link #perft(ScotlandYardEngine, int)} by root move
+	 *
+	 * @param engine the engine; not null
+	 * @param depth the number of plies; one or greater
+	 * @return the number of leaf positions below each root move, in the order
+	 *         of {@link #sorted(Map)}; never null
+	 */
+	public static Map<Move, Long> divide(ScotlandYardEngine engine, int depth) {
+		requireNonNull(engine);
+		if (depth < 1) throw new IllegalArgumentException("depth < 1");
+		MoveBuffer[] buffers = buffers(depth);
+		MoveBuffer roots = new MoveBuffer();
+		engine.generateMoves(roots);
+		Map<Move, Long> counts = new LinkedHashMap<>();
+		for (int i = 0; i < roots.size(); i++) {
+			engine.apply(roots.get(i));
+			counts.put(PackedMove.toMove(roots.get(i)), perft(engine, depth - 1, buffers));
+			engine.undo();
+		}
+		return sorted(counts);
+	}
+
+	/**
+	 * Splits the perft count of the start of a game by root move, using
+	 * {@link ScotlandYardModel} and its valid moves. See
+	 * {@link ScotlandYardGameFactory#createGame(List, Graph, PlayerConfiguration, PlayerConfiguration, PlayerConfiguration...)}
+	 * for the parameters, the {@link PlayerConfiguration#player} of the
+	 * configurations is ignored.
+	 *
+	 * @param depth the number of plies; one or greater
+	 * @return the number of leaf positions below each root move, in the order
+	 *         of {@link #sorted(Map)}; never null
+	 */
+	public static Map<Move, Long> divide(List<Boolean> rounds, Graph<Integer, Transport> graph,
+			int depth, PlayerConfiguration mrX, PlayerConfiguration firstDetective,
+			PlayerConfiguration... restOfTheDetectives) {
+		if (depth < 1) throw new IllegalArgumentException("depth < 1");
+		List<PlayerConfiguration> players = ScotlandYardEngine.configurations(mrX,
+				firstDetective, restOfTheDetectives);
+		requireNonNull(rounds);
+		requireNonNull(graph);
+		List<Move> path = new ArrayList<>();
+		Map<Move, Long> counts = new LinkedHashMap<>();
+		for (Move move : replay(rounds, graph, players, path)) {
+			path.add(move);
+			counts.put(move, referencePerft(rounds, graph, players, path, depth - 1));
+			path.remove(path.size() - 1);
+		}
+		return sorted(counts);
+	}
+
+	private static long referencePerft(List<Boolean> rounds, Graph<Integer, Transport> graph,
+			List<PlayerConfiguration> players, List<Move> path, int depth) {
+		if (depth == 0) return 1;
+		Set<Move> moves = replay(rounds, graph, players, path);
+		if (depth == 1) return moves.size();
+		long nodes = 0;
+		for (Move move : moves) {
+			path.add(move);
+			nodes += referencePerft(rounds, graph, players, path, depth - 1);
+			path.remove(path.size() - 1);
+		}
+		return nodes;
+	}
+
+	// plays the path on a new model and returns the valid moves after it,
+	// empty if the game is over
+	private static Set<Move> replay(List<Boolean> rounds, Graph<Integer, Transport> graph,
+			List<PlayerConfiguration> players, List<Move> path) {
+		ReplayingPlayer player = new ReplayingPlayer(path);
+		List<PlayerConfiguration> configurations = new ArrayList<>();
+		for (PlayerConfiguration configuration : players)
+			configurations.add(new PlayerConfiguration.Builder(configuration.colour)
+					.using(player).with(configuration.tickets).at(configuration.location)
+					.build());
+		ScotlandYardModel model = new ScotlandYardModel(rounds, graph, configurations.get(0),
+				configurations.get(1), configurations.subList(2, configurations.size())
+						.toArray(new PlayerConfiguration[0]));
+		while (player.moves == null && !model.isGameOver())
+			model.startRotate();
+		return player.moves == null || model.isGameOver() ? Collections.emptySet() : player.moves;
+	}
+
+	private static final class ReplayingPlayer implements Player {
+
+		private final List<Move> path;
+		private int index;
+		private Set<Move> moves;
+
+		ReplayingPlayer(List<Move> path) {
+			this.path = path;
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			if (index < path.size()) callback.accept(path.get(index++));
+			else this.moves = moves;
+		}
+	}
+
+	/**
+	 * Times {@link #perft(ScotlandYardEngine, int)}
+	 *
+	 * @param engine the engine; not null
+	 * @param depth the number of plies; zero or greater
+	 * @return the count and timing; never null
+	 */
+	public static Result benchmark(ScotlandYardEngine engine, int depth) {
+		long start = System.nanoTime();
+		long nodes = perft(engine, depth);
+		return new Result(depth, nodes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Orders divide counts by the string form of the moves, so results from
+	 * different implementations line up
+	 *
+	 * @param counts the counts; not null
+	 * @return a new map with the same entries in order; never null
+	 */
+	public static Map<Move, Long> sorted(Map<Move, Long> counts) {
+		Map<Move, Long> sorted = new LinkedHashMap<>();
+		counts.entrySet().stream()
+				.sorted(Comparator.comparing(entry -> entry.getKey().toString()))
+				.forEachOrdered(entry -> sorted.put(entry.getKey(), entry.getValue()));
+		return sorted;
+	}
+
+	private static void checkDepth(int depth) {
+		if (depth < 0) throw new IllegalArgumentException("depth < 0");
+	}
+
+	private static MoveBuffer[] buffers(int depth) {
+		MoveBuffer[] buffers = new MoveBuffer[depth];
+		for (int i = 0; i < depth; i++)
+			buffers[i] = new MoveBuffer();
+		return buffers;
+	}
+
+}
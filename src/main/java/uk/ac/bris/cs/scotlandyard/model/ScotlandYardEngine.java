@@ -0,0 +1,496 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * A search oriented Scotland Yard game engine. It follows the same rules as
+ * {@link ScotlandYardModel} but keeps the game state in primitive arrays,
+ * applies moves in place with {@link #apply(int)} and reverts them with
+ * {@link #undo()}. No {@link Player} or {@link Spectator} is ever called, so
+ * once the undo stack has grown to the search depth applying and undoing moves
+ * does not allocate.
+ *
+ * <br>
+ * Moves are packed with {@link PackedMove} and are not validated beyond the
+ * colour of the player, they should come from
+ * {@link #generateMoves(MoveBuffer)}. Instances are not thread safe, use
+ * {@link #copy()} to hand a position to another thread.
+ */
+public final class ScotlandYardEngine {
+
+	static final int ONGOING = 0;
+	static final int MRX_WON = 1;
+	static final int DETECTIVES_WON = 2;
+
+	// move, origin, last known location, round, current player | status << 8
+	private static final int UNDO_FRAME = 5;
+
+	private static final int DOUBLE = Ticket.Double.ordinal();
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private final boolean[] rounds;
+	private final Colour[] colours;
+	private final int[] indices;
+	private final MoveGenerator generator;
+	private final int[] locations;
+	private final int[][] tickets;
+	private final long[] occupied;
+	private final IntPredicate canMove;
+	private int round;
+	private int current;
+	private int lastKnownLocation;
+	private int status;
+	private long key;
+	private int[] undoStack = new int[UNDO_FRAME * 32];
+	private long[] keyStack = new long[32];
+	private int undoSize;
+
+	/**
+	 * Creates an engine at the start of a game, see
+	 * {@link ScotlandYardGameFactory#createGame(List, Graph, PlayerConfiguration, PlayerConfiguration, PlayerConfiguration...)}
+	 * for the parameters. The {@link PlayerConfiguration#player} of the
+	 * configurations is ignored.
+	 */
+	public ScotlandYardEngine(List<Boolean> rounds, Graph<Integer, Transport> graph,
+			PlayerConfiguration mrX, PlayerConfiguration firstDetective,
+			PlayerConfiguration... restOfTheDetectives) {
+		this(rounds, new NeighbourTable(requireNonNull(graph)), mrX, firstDetective,
+				restOfTheDetectives);
+	}
+
+	/**
+	 * Creates an engine at the start of a game with a precomputed neighbour
+	 * table, which may be shared between engines of the same graph
+	 */
+	public ScotlandYardEngine(List<Boolean> rounds, NeighbourTable neighbours,
+			PlayerConfiguration mrX, PlayerConfiguration firstDetective,
+			PlayerConfiguration... restOfTheDetectives) {
+		this(toArray(rounds), neighbours, configurations(mrX, firstDetective, restOfTheDetectives),
+				ScotlandYardView.NOT_STARTED, 0, 0);
+	}
+
+	private ScotlandYardEngine(boolean[] rounds, NeighbourTable neighbours,
+			List<PlayerConfiguration> players, int round, int current, int lastKnownLocation) {
+		this(rounds, neighbours, players.stream().map(p -> p.colour).toArray(Colour[]::new),
+				players.stream().mapToInt(p -> p.location).toArray(),
+				players.stream().map(p -> toArray(p.tickets)).toArray(int[][]::new),
+				round, current, lastKnownLocation);
+	}
+
+	// arrays are used directly, callers must pass copies
+	ScotlandYardEngine(boolean[] rounds, NeighbourTable neighbours, Colour[] colours,
+			int[] locations, int[][] tickets, int round, int current, int lastKnownLocation) {
+		if (rounds.length == 0) throw new IllegalArgumentException("Empty rounds");
+		if (colours.length < 2) throw new IllegalArgumentException("No detectives");
+		if (colours[0] != Black) throw new IllegalArgumentException("MrX should be Black");
+		this.rounds = rounds;
+		this.colours = colours;
+		this.generator = new MoveGenerator(neighbours);
+		this.locations = locations;
+		this.tickets = tickets;
+		this.round = round;
+		this.current = current;
+		this.lastKnownLocation = lastKnownLocation;
+		this.indices = new int[Colour.values().length];
+		Arrays.fill(indices, -1);
+		for (int i = 0; i < colours.length; i++) {
+			if (indices[colours[i].ordinal()] != -1)
+				throw new IllegalArgumentException("Duplicate colour");
+			indices[colours[i].ordinal()] = i;
+		}
+		this.occupied = new long[neighbours.words()];
+		for (int i = 1; i < locations.length; i++)
+			Bitboards.set(occupied, locations[i]);
+		this.canMove = i -> generator.canMove(this.locations[i], this.tickets[i], occupied);
+		this.key = Zobrist.of(colours, locations, tickets, round, current, lastKnownLocation);
+		if (current == 0) checkRotationEnd();
+	}
+
+	/**
+	 * Creates an engine from the current state of a view, typically inside
+	 * {@link Player#makeMove(ScotlandYardView, int, Set, java.util.function.Consumer)}
+	 *
+	 * @param view the view; not null
+	 * @param mrXLocation the location to use for MrX, use
+	 *        {@link ScotlandYardView#getPlayerLocation(Colour)} for detectives
+	 *        that only know where MrX was last seen
+	 * @param neighbours the neighbour table of the view's graph; not null
+	 * @return the engine; never null
+	 */
+	public static ScotlandYardEngine fromView(ScotlandYardView view, int mrXLocation,
+			NeighbourTable neighbours) {
+		requireNonNull(view);
+		List<Colour> players = view.getPlayers();
+		Colour[] colours = players.toArray(new Colour[0]);
+		int[] locations = new int[colours.length];
+		int[][] tickets = new int[colours.length][Ticket.values().length];
+		for (int i = 0; i < colours.length; i++) {
+			locations[i] = i == 0 ? mrXLocation : view.getPlayerLocation(colours[i]);
+			for (Ticket ticket : Ticket.values())
+				tickets[i][ticket.ordinal()] = view.getPlayerTickets(colours[i], ticket);
+		}
+		return new ScotlandYardEngine(toArray(view.getRounds()), requireNonNull(neighbours),
+				colours, locations, tickets, view.getCurrentRound(),
+				players.indexOf(view.getCurrentPlayer()), view.getPlayerLocation(Black));
+	}
+
+	static List<PlayerConfiguration> configurations(PlayerConfiguration mrX,
+			PlayerConfiguration firstDetective, PlayerConfiguration... restOfTheDetectives) {
+		List<PlayerConfiguration> players = new ArrayList<>();
+		players.add(requireNonNull(mrX));
+		players.add(requireNonNull(firstDetective));
+		for (PlayerConfiguration detective : restOfTheDetectives)
+			players.add(requireNonNull(detective));
+		return players;
+	}
+
+	static boolean[] toArray(List<Boolean> rounds) {
+		boolean[] array = new boolean[rounds.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = rounds.get(i);
+		return array;
+	}
+
+	static int[] toArray(Map<Ticket, Integer> tickets) {
+		int[] array = new int[Ticket.values().length];
+		for (Ticket ticket : Ticket.values())
+			array[ticket.ordinal()] = tickets.getOrDefault(ticket, 0);
+		return array;
+	}
+
+	/**
+	 * Creates an independent copy of this engine with the same position and an
+	 * empty undo stack, the neighbour table is shared
+	 *
+	 * @return the copy; never null
+	 */
+	public ScotlandYardEngine copy() {
+		int[][] ticketsCopy = new int[tickets.length][];
+		for (int i = 0; i < tickets.length; i++)
+			ticketsCopy[i] = tickets[i].clone();
+		ScotlandYardEngine copy = new ScotlandYardEngine(rounds, generator.neighbours(), colours,
+				locations.clone(), ticketsCopy, round, current, lastKnownLocation);
+		copy.status = status;
+		return copy;
+	}
+
+	// overrides the status computed by the constructor, e.g. for a capture
+	void status(int status) {
+		this.status = status;
+	}
+
+	/**
+	 * Appends the valid moves of the current player to the buffer. A
+	 * detective that cannot move gets a single pass move, nothing is added if
+	 * the game is over.
+	 *
+	 * @param out the buffer; not null
+	 */
+	public void generateMoves(MoveBuffer out) {
+		if (status != ONGOING) return;
+		int size = out.size();
+		generator.generate(colours[current], locations[current], tickets[current],
+				MoveGenerator.doubleAllowed(round, rounds.length), occupied, out);
+		if (current != 0 && out.size() == size) out.add(PackedMove.pass(colours[current]));
+	}
+
+	/**
+	 * Applies a {@link Move}, see {@link #apply(int)}
+	 *
+	 * @param move the move; not null
+	 */
+	public void apply(Move move) {
+		apply(PackedMove.fromMove(move));
+	}
+
+	/**
+	 * Applies a packed move for the current player
+	 *
+	 * @param move the packed move, should be one of the moves from
+	 *        {@link #generateMoves(MoveBuffer)}
+	 * @throws IllegalStateException if the game is over
+	 * @throws IllegalArgumentException if the move is not for the current
+	 *         player
+	 */
+	public void apply(int move) {
+		if (status != ONGOING) throw new IllegalStateException("Game over");
+		if (PackedMove.colour(move) != colours[current])
+			throw new IllegalArgumentException(PackedMove.toString(move) + " is not for "
+					+ colours[current]);
+		push(move);
+		if (current == 0) applyMrX(move);
+		else applyDetective(move);
+	}
+
+	private void applyMrX(int move) {
+		if (PackedMove.isPass(move)) throw new IllegalArgumentException("MrX cannot pass");
+		if (PackedMove.isDouble(move)) {
+			adjustTickets(0, DOUBLE, -1);
+			moveMrX(PackedMove.firstTicket(move), PackedMove.firstDestination(move));
+			moveMrX(PackedMove.secondTicket(move), PackedMove.secondDestination(move));
+		} else {
+			moveMrX(PackedMove.firstTicket(move), PackedMove.firstDestination(move));
+		}
+		setCurrent(1);
+	}
+
+	private void moveMrX(Ticket ticket, int destination) {
+		adjustTickets(0, ticket.ordinal(), -1);
+		key ^= Zobrist.mrXLocation(locations[0]) ^ Zobrist.mrXLocation(destination);
+		locations[0] = destination;
+		if (rounds[round]) {
+			key ^= Zobrist.location(Black, lastKnownLocation) ^ Zobrist.location(Black, destination);
+			lastKnownLocation = destination;
+		}
+		key ^= Zobrist.round(round) ^ Zobrist.round(round + 1);
+		round++;
+	}
+
+	// changes a ticket count together with its part of the key
+	private void adjustTickets(int player, int ticket, int by) {
+		Ticket type = TICKETS[ticket];
+		int count = tickets[player][ticket];
+		key ^= Zobrist.tickets(colours[player], type, count)
+				^ Zobrist.tickets(colours[player], type, count + by);
+		tickets[player][ticket] = count + by;
+	}
+
+	private void setCurrent(int next) {
+		key ^= Zobrist.currentPlayer(colours[current]) ^ Zobrist.currentPlayer(colours[next]);
+		current = next;
+	}
+
+	private void applyDetective(int move) {
+		if (!PackedMove.isPass(move)) {
+			int ticket = PackedMove.firstTicket(move).ordinal();
+			int destination = PackedMove.firstDestination(move);
+			adjustTickets(current, ticket, -1);
+			adjustTickets(0, ticket, 1);
+			Bitboards.clear(occupied, locations[current]);
+			Bitboards.set(occupied, destination);
+			key ^= Zobrist.location(colours[current], locations[current])
+					^ Zobrist.location(colours[current], destination);
+			locations[current] = destination;
+			if (destination == locations[0] && round > 0) {
+				status = DETECTIVES_WON;
+				return;
+			}
+		}
+		if (current + 1 == colours.length) {
+			setCurrent(0);
+			checkRotationEnd();
+		} else {
+			setCurrent(current + 1);
+		}
+	}
+
+	private void checkRotationEnd() {
+		status = rotationEnd(round, rounds.length, colours.length, canMove);
+	}
+
+	/**
+	 * The checks at the end of a rotation, in the order every implementation
+	 * of the rules makes them: the rounds are used up, MrX cannot move, all
+	 * detectives cannot move
+	 *
+	 * @param round the current round
+	 * @param rounds the number of rounds
+	 * @param players the number of players, MrX included
+	 * @param canMove whether the player at an index can move, 0 is MrX
+	 * @return {@link #ONGOING}, {@link #MRX_WON} or {@link #DETECTIVES_WON}
+	 */
+	static int rotationEnd(int round, int rounds, int players, IntPredicate canMove) {
+		if (round >= rounds) return MRX_WON;
+		if (!canMove.test(0)) return DETECTIVES_WON;
+		for (int i = 1; i < players; i++)
+			if (canMove.test(i)) return ONGOING;
+		return MRX_WON;
+	}
+
+	private void push(int move) {
+		if (undoSize + UNDO_FRAME > undoStack.length) {
+			undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+			keyStack = Arrays.copyOf(keyStack, keyStack.length * 2);
+		}
+		keyStack[undoSize / UNDO_FRAME] = key;
+		undoStack[undoSize] = move;
+		undoStack[undoSize + 1] = locations[current];
+		undoStack[undoSize + 2] = lastKnownLocation;
+		undoStack[undoSize + 3] = round;
+		undoStack[undoSize + 4] = current | status << 8;
+		undoSize += UNDO_FRAME;
+	}
+
+	/**
+	 * Reverts the last applied move
+	 *
+	 * @throws IllegalStateException if there are no moves to undo
+	 */
+	public void undo() {
+		if (undoSize == 0) throw new IllegalStateException("Nothing to undo");
+		undoSize -= UNDO_FRAME;
+		key = keyStack[undoSize / UNDO_FRAME];
+		int move = undoStack[undoSize];
+		int origin = undoStack[undoSize + 1];
+		lastKnownLocation = undoStack[undoSize + 2];
+		round = undoStack[undoSize + 3];
+		current = undoStack[undoSize + 4] & 0xff;
+		status = undoStack[undoSize + 4] >>> 8;
+		if (PackedMove.isPass(move)) return;
+		int ticket = PackedMove.firstTicket(move).ordinal();
+		tickets[current][ticket]++;
+		if (current == 0) {
+			if (PackedMove.isDouble(move)) {
+				tickets[0][PackedMove.secondTicket(move).ordinal()]++;
+				tickets[0][DOUBLE]++;
+			}
+		} else {
+			tickets[0][ticket]--;
+			Bitboards.clear(occupied, locations[current]);
+			Bitboards.set(occupied, origin);
+		}
+		locations[current] = origin;
+	}
+
+	/**
+	 * A {@link Zobrist} key of the position, maintained incrementally by
+	 * {@link #apply(int)} and {@link #undo()}. It covers everything
+	 * {@link ScotlandYardView#getZobristKey()} does plus MrX's actual location.
+	 *
+	 * @return the key of the current position
+	 */
+	public long key() {
+		return key;
+	}
+
+	/**
+	 * @return the number of moves that can be undone
+	 */
+	public int depth() {
+		return undoSize / UNDO_FRAME;
+	}
+
+	/**
+	 * @return the number of players, including MrX
+	 */
+	public int playerCount() {
+		return colours.length;
+	}
+
+	/**
+	 * @return the colours of the players in order of play; never null
+	 */
+	public List<Colour> players() {
+		return Collections.unmodifiableList(Arrays.asList(colours));
+	}
+
+	/**
+	 * @return the colour of the player to move; never null
+	 */
+	public Colour currentPlayer() {
+		return colours[current];
+	}
+
+	/**
+	 * @return the current round, see {@link ScotlandYardView#getCurrentRound()}
+	 */
+	public int currentRound() {
+		return round;
+	}
+
+	/**
+	 * @return the number of rounds in the game
+	 */
+	public int roundCount() {
+		return rounds.length;
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @return the actual location of the player, including MrX
+	 */
+	public int location(Colour colour) {
+		return locations[index(colour)];
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @param ticket the ticket; not null
+	 * @return the ticket count of the player
+	 */
+	public int tickets(Colour colour, Ticket ticket) {
+		return tickets[index(colour)][ticket.ordinal()];
+	}
+
+	/**
+	 * @return the location MrX was last revealed at, or 0 if never revealed
+	 */
+	public int lastKnownLocation() {
+		return lastKnownLocation;
+	}
+
+	/**
+	 * @return true if the game is over
+	 */
+	public boolean isGameOver() {
+		return status != ONGOING;
+	}
+
+	/**
+	 * @return true if the game is over and MrX won
+	 */
+	public boolean isMrXWinner() {
+		return status == MRX_WON;
+	}
+
+	/**
+	 * @return true if the game is over and the detectives won, MrX loses when
+	 *         captured or when he cannot move
+	 */
+	public boolean isDetectiveWinner() {
+		return status == DETECTIVES_WON;
+	}
+
+	/**
+	 * @return the winning colours, see
+	 *         {@link ScotlandYardView#getWinningPlayers()}; never null
+	 */
+	public Set<Colour> getWinningPlayers() {
+		Set<Colour> winners = EnumSet.noneOf(Colour.class);
+		if (status == MRX_WON) winners.add(Black);
+		if (status == DETECTIVES_WON)
+			winners.addAll(Arrays.asList(colours).subList(1, colours.length));
+		return Collections.unmodifiableSet(winners);
+	}
+
+	private int index(Colour colour) {
+		int index = indices[colour.ordinal()];
+		if (index == -1) throw new IllegalArgumentException(colour + " is not playing");
+		return index;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("ScotlandYardEngine{");
+		sb.append("round=").append(round);
+		sb.append(", current=").append(colours[current]);
+		sb.append(", locations=").append(Arrays.toString(locations));
+		sb.append(", lastKnownLocation=").append(lastKnownLocation);
+		sb.append(", status=").append(status);
+		sb.append('}');
+		return sb.toString();
+	}
+
+}
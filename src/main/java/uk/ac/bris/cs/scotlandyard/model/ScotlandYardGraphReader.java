@@ -1,11 +1,35 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import uk.ac.bris.cs.gamekit.graph.Edge;
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
+import uk.ac.bris.cs.gamekit.graph.IntGraph;
 import uk.ac.bris.cs.gamekit.graph.Node;
 import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
 
@@ -16,6 +40,29 @@ import uk.ac.bris.cs.gamekit.graph.UndirectedGraph;
 public class ScotlandYardGraphReader {
 
 	private static final String DELIMITER = " ";
+	private static final byte DELIMITER_BYTE = ' ';
+	private static final Pattern DELIMITER_PATTERN = Pattern.compile(Pattern.quote(DELIMITER));
+
+	/**
+	 * The first four bytes of a binary map file, "SYGM"
+	 */
+	static final int MAGIC = 0x5359474D;
+
+	/**
+	 * The version of the binary map format
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * The number of bytes from which {@link #fromChannel(ReadableByteChannel)}
+	 * parses in parallel
+	 */
+	static final int PARALLEL_BYTES = 1 << 20;
+
+	private static final int CHUNK_BYTES = 1 << 18;
+
+	private static final byte[][] TRANSPORT_NAMES = Arrays.stream(Transport.values())
+			.map(t -> t.name().getBytes(StandardCharsets.US_ASCII)).toArray(byte[][]::new);
 
 	private ScotlandYardGraphReader() {
 		// nope
@@ -31,7 +78,7 @@ public class ScotlandYardGraphReader {
 		if (lines == null) throw new NullPointerException("lines == null");
 		if (lines.isEmpty()) throw new IllegalArgumentException("Lines must not be empty!");
 
-		String[] topLine = parseLine(0, lines, DELIMITER, 2);
+		String[] topLine = parseLine(0, lines, 2);
 		int numberOfNodes;
 		int numberOfEdges;
 		try {
@@ -50,7 +97,7 @@ public class ScotlandYardGraphReader {
 		for (int i = 1; i <= numberOfNodes; i++) {
 			if (lines.get(i).isEmpty())
 				throw new IllegalArgumentException("Expected non-empty line at line " + i);
-			String value = parseLine(i, lines, DELIMITER, 1)[0];
+			String value = parseLine(i, lines, 1)[0];
 			try {
 				graph.addNode(new Node<>(Integer.parseInt(value)));
 			} catch (NumberFormatException e) {
@@ -62,7 +109,7 @@ public class ScotlandYardGraphReader {
 		for (int i = numberOfNodes + 1; i <= numberOfNodes + numberOfEdges; i++) {
 			if (lines.get(i).isEmpty())
 				throw new IllegalArgumentException("Expected non-empty line at line " + i);
-			String[] segments = parseLine(i, lines, DELIMITER, 3);
+			String[] segments = parseLine(i, lines, 3);
 
 			Node<Integer> source;
 			Node<Integer> destination;
@@ -91,13 +138,360 @@ public class ScotlandYardGraphReader {
 		return new ImmutableGraph<>(graph);
 	}
 
-	private static String[] parseLine(int line, List<String> lines, String delimiter,
-			int expectedSegments) {
+	/**
+	 * Loads a Scotland Yard game map from a binary map file written by
+	 * {@link ScotlandYardMapConverter}. The file is memory mapped and its
+	 * arrays are copied in bulk into an {@link IntGraph}, without parsing
+	 * text or creating an object per edge.
+	 *
+	 * <br>
+	 * The format is big endian: the int {@link #MAGIC}; the int
+	 * {@link #VERSION}; the number of nodes, the largest node value, the
+	 * number of edges and the number of positions as ints; the node values;
+	 * the {@link IntGraph} offsets of every node value from 0 to the largest
+	 * one followed by the number of edges; the target of every edge; the
+	 * {@link Transport#ordinal()} of every edge as a byte, padded with zeros
+	 * to a multiple of four bytes; then the node value, x and y of every map
+	 * position.
+	 *
+	 * @param path the file; not null
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 * @throws IOException if the file cannot be read
+	 */
+	public static IntGraph<Transport> fromMappedFile(Path path) throws IOException {
+		ByteBuffer buffer = map(path);
+		try {
+			int[] header = readHeader(path, buffer);
+			int[] nodes = readInts(buffer, header[0]);
+			int[] offsets = readInts(buffer, header[1] + 2);
+			int[] targets = readInts(buffer, header[2]);
+			byte[] data = new byte[header[2]];
+			buffer.get(data);
+			return IntGraph.of(Transport.class, nodes, offsets, targets, data);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException(path + " is truncated");
+		}
+	}
+
+	/**
+	 * Loads the map positions from a binary map file, see
+	 * {@link #fromMappedFile(Path)}
+	 *
+	 * @param path the file; not null
+	 * @return unmodifiable map of node value to x and y coordinates, in the
+	 *         same form as {@link StandardGame#pngMapPositionEntries()}
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Map<Integer, Entry<Integer, Integer>> positionsFromMappedFile(Path path)
+			throws IOException {
+		ByteBuffer buffer = map(path);
+		try {
+			int[] header = readHeader(path, buffer);
+			long skipped = Integer.BYTES * ((long) header[0] + header[1] + 2 + header[2])
+					+ paddedSize(header[2]);
+			if (skipped > buffer.remaining())
+				throw new IllegalArgumentException(path + " is truncated");
+			buffer.position(buffer.position() + (int) skipped);
+			int[] positions = readInts(buffer, 3 * header[3]);
+			Map<Integer, Entry<Integer, Integer>> map = new HashMap<>();
+			for (int i = 0; i < positions.length; i += 3)
+				map.put(positions[i], new SimpleImmutableEntry<>(positions[i + 1], positions[i + 2]));
+			return Collections.unmodifiableMap(map);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException(path + " is truncated");
+		}
+	}
+
+	/**
+	 * @param edges the number of edges
+	 * @return the size of the edge data of a binary map file
+	 */
+	static long paddedSize(int edges) {
+		return (edges + 3L) & ~3L;
+	}
+
+	private static ByteBuffer map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException(path + " is too large to map");
+			// the mapping stays valid after the channel is closed
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	// nodes, largest node, edges and positions after checking magic and version
+	private static int[] readHeader(Path path, ByteBuffer buffer) {
+		if (buffer.getInt() != MAGIC)
+			throw new IllegalArgumentException(path + " is not a binary map file");
+		int version = buffer.getInt();
+		if (version != VERSION) throw new IllegalArgumentException(
+				"Unsupported binary map version " + version + " in " + path);
+		int[] header = readInts(buffer, 4);
+		if (header[0] < 0 || header[1] < -1 || header[1] == Integer.MAX_VALUE || header[2] < 0
+				|| header[3] < 0 || header[3] > Integer.MAX_VALUE / 3)
+			throw new IllegalArgumentException("Invalid header in " + path);
+		return header;
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int count) {
+		if ((long) count * Integer.BYTES > buffer.remaining())
+			throw new BufferUnderflowException();
+		int[] ints = new int[count];
+		buffer.asIntBuffer().get(ints);
+		buffer.position(buffer.position() + count * Integer.BYTES);
+		return ints;
+	}
+
+	/**
+	 * Reads a Scotland Yard game map in the format of {@link #fromLines(List)}
+	 * from a file, see {@link #fromChannel(ReadableByteChannel)}. The file is
+	 * memory mapped instead of copied onto the heap, so this is the way to
+	 * parse large files.
+	 *
+	 * @param path the file; not null
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 * @throws IOException if the file cannot be read
+	 */
+	public static ImmutableGraph<Integer, Transport> fromPath(Path path) throws IOException {
+		return fromBytes(map(path));
+	}
+
+	/**
+	 * Reads a Scotland Yard game map in the format of {@link #fromLines(List)}
+	 * from a stream, see {@link #fromChannel(ReadableByteChannel)}
+	 *
+	 * @param stream the stream, read to its end but not closed; not null
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 * @throws IOException if the stream cannot be read
+	 */
+	public static ImmutableGraph<Integer, Transport> fromStream(InputStream stream)
+			throws IOException {
+		return fromChannel(Channels.newChannel(requireNonNull(stream)));
+	}
+
+	/**
+	 * Reads a Scotland Yard game map in the format of {@link #fromLines(List)}
+	 * from a channel. Numbers and transports are parsed straight from the UTF-8
+	 * bytes without creating a string per line; inputs of
+	 * {@link #PARALLEL_BYTES} or more are split at line ends into chunks that
+	 * are parsed in parallel on the common fork join pool, then the graph is
+	 * built in line order.
+	 *
+	 * <br>
+	 * The input is not parsed as it arrives: the whole channel is first read
+	 * into a heap buffer that doubles as it fills, so up to about three times
+	 * the input size is held while reading and inputs are limited to 2GB. Use
+	 * {@link #fromPath(Path)} for files.
+	 *
+	 * <br>
+	 * The result and any exception are those of {@link #fromLines(List)} for
+	 * the same lines: anything outside the plain format of digits, single
+	 * spaces and transport names, as well as invalid maps, is handed to
+	 * {@link #fromLines(List)} so error messages and line numbers are the
+	 * same.
+	 *
+	 * @param channel the channel, read to its end but not closed; not null
+	 * @return a graph for {@link ScotlandYardGame} to use
+	 * @throws IOException if the channel cannot be read
+	 */
+	public static ImmutableGraph<Integer, Transport> fromChannel(ReadableByteChannel channel)
+			throws IOException {
+		requireNonNull(channel);
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		while (channel.read(buffer) >= 0) {
+			if (!buffer.hasRemaining()) {
+				if (buffer.capacity() == Integer.MAX_VALUE - 8)
+					throw new IOException("Input is too large");
+				ByteBuffer larger = ByteBuffer
+						.allocate((int) Math.min(2L * buffer.capacity(), Integer.MAX_VALUE - 8));
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+		buffer.flip();
+		return fromBytes(buffer);
+	}
+
+	/**
+	 * The values parsed from a byte buffer, line {@code i} being node
+	 * {@code i - 1} for the node lines and edge {@code i - nodes.length - 1}
+	 * for the edge lines
+	 */
+	private static final class ParsedLines {
+
+		final ByteBuffer buffer;
+		final int[] nodes;
+		final int[] sources;
+		final int[] destinations;
+		final byte[] transports;
+
+		ParsedLines(ByteBuffer buffer, int nodeCount, int edgeCount) {
+			this.buffer = buffer;
+			this.nodes = new int[nodeCount];
+			this.sources = new int[edgeCount];
+			this.destinations = new int[edgeCount];
+			this.transports = new byte[edgeCount];
+		}
+
+		// parses the lines from start to end, the first one being line
+		// number first; false if a line is not in the plain format
+		boolean parse(int start, int end, int first) {
+			int line = first;
+			int last = nodes.length + sources.length;
+			for (int from = start; from < end && line <= last; line++) {
+				int to = lineEnd(buffer, from, end);
+				if (line > 0 && !parseLine(line, from, to)) return false;
+				from = nextLine(buffer, to, end);
+			}
+			return true;
+		}
+
+		private boolean parseLine(int line, int start, int end) {
+			end = trimEnd(buffer, start, end);
+			if (line <= nodes.length) {
+				int value = parseInt(buffer, start, end);
+				nodes[line - 1] = value;
+				return value >= 0;
+			}
+			int edge = line - nodes.length - 1;
+			int first = indexOf(buffer, start, end);
+			int second = first < 0 ? -1 : indexOf(buffer, first + 1, end);
+			if (second < 0) return false;
+			sources[edge] = parseInt(buffer, start, first);
+			destinations[edge] = parseInt(buffer, first + 1, second);
+			int transport = parseTransport(buffer, second + 1, end);
+			transports[edge] = (byte) transport;
+			return sources[edge] >= 0 && destinations[edge] >= 0 && transport >= 0;
+		}
+	}
+
+	private static ImmutableGraph<Integer, Transport> fromBytes(ByteBuffer buffer) {
+		int start = buffer.position();
+		int limit = buffer.limit();
+
+		// the top line first, it gives the size of the sections
+		int topEnd = lineEnd(buffer, start, limit);
+		int trimmed = trimEnd(buffer, start, topEnd);
+		int space = indexOf(buffer, start, trimmed);
+		int nodeCount = space < 0 ? -1 : parseInt(buffer, start, space);
+		int edgeCount = space < 0 ? -1 : parseInt(buffer, space + 1, trimmed);
+		if (nodeCount < 0 || edgeCount < 0) return fromLines(decodeLines(buffer));
+
+		// chunks end after a line feed so no line or \r\n is split
+		List<Integer> bounds = new ArrayList<>();
+		bounds.add(start);
+		int chunkBytes = limit - start < PARALLEL_BYTES ? Integer.MAX_VALUE : CHUNK_BYTES;
+		for (long next = (long) start + chunkBytes; next < limit; next += chunkBytes) {
+			int bound = (int) Math.max(next, bounds.get(bounds.size() - 1));
+			while (bound < limit && buffer.get(bound - 1) != '\n')
+				bound++;
+			if (bound < limit && bound > bounds.get(bounds.size() - 1)) bounds.add(bound);
+		}
+		bounds.add(limit);
+		int chunks = bounds.size() - 1;
+
+		int[] firstLines = new int[chunks + 1];
+		IntStream.range(0, chunks).parallel().forEach(
+				c -> firstLines[c + 1] = countLines(buffer, bounds.get(c), bounds.get(c + 1)));
+		for (int c = 0; c < chunks; c++)
+			firstLines[c + 1] += firstLines[c];
+		if ((long) nodeCount + edgeCount > firstLines[chunks] - 1)
+			return fromLines(decodeLines(buffer));
+
+		ParsedLines parsed = new ParsedLines(buffer, nodeCount, edgeCount);
+		boolean plain = IntStream.range(0, chunks).parallel().allMatch(
+				c -> parsed.parse(bounds.get(c), bounds.get(c + 1), firstLines[c]));
+		if (!plain) return fromLines(decodeLines(buffer));
+
+		UndirectedGraph<Integer, Transport> graph = new UndirectedGraph<>();
+		for (int value : parsed.nodes)
+			graph.addNode(new Node<>(value));
+		Transport[] transports = Transport.values();
+		for (int edge = 0; edge < edgeCount; edge++) {
+			Node<Integer> source = graph.getNode(parsed.sources[edge]);
+			Node<Integer> destination = graph.getNode(parsed.destinations[edge]);
+			if (source == null || destination == null) return fromLines(decodeLines(buffer));
+			graph.addEdge(new Edge<>(source, destination, transports[parsed.transports[edge]]));
+		}
+		return new ImmutableGraph<>(graph);
+	}
+
+	// the lines as BufferedReader splits them, for fromLines to report errors
+	private static List<String> decodeLines(ByteBuffer buffer) {
+		String text = StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+		return new BufferedReader(new StringReader(text)).lines().collect(Collectors.toList());
+	}
+
+	// the index of the line feed or carriage return ending the line at start
+	private static int lineEnd(ByteBuffer buffer, int start, int limit) {
+		int end = start;
+		while (end < limit && buffer.get(end) != '\n' && buffer.get(end) != '\r')
+			end++;
+		return end;
+	}
+
+	// the start of the line after the one ending at end
+	private static int nextLine(ByteBuffer buffer, int end, int limit) {
+		if (end >= limit) return limit;
+		if (buffer.get(end) == '\r' && end + 1 < limit && buffer.get(end + 1) == '\n')
+			return end + 2;
+		return end + 1;
+	}
+
+	// the number of lines starting from start to end
+	private static int countLines(ByteBuffer buffer, int start, int end) {
+		int lines = 0;
+		for (int from = start; from < end; lines++)
+			from = nextLine(buffer, lineEnd(buffer, from, end), end);
+		return lines;
+	}
+
+	// the end of a line without its trailing delimiters, as String.split
+	// drops trailing empty strings
+	private static int trimEnd(ByteBuffer buffer, int start, int end) {
+		while (end > start && buffer.get(end - 1) == DELIMITER_BYTE)
+			end--;
+		return end;
+	}
+
+	// the index of the first delimiter from start to end, -1 if none
+	private static int indexOf(ByteBuffer buffer, int start, int end) {
+		for (int i = start; i < end; i++)
+			if (buffer.get(i) == DELIMITER_BYTE) return i;
+		return -1;
+	}
+
+	// the value of 1 to 9 ASCII digits, -1 for anything else
+	private static int parseInt(ByteBuffer buffer, int start, int end) {
+		if (end <= start || end - start > 9) return -1;
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) return -1;
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	// the ordinal of the transport named from start to end, -1 if none
+	private static int parseTransport(ByteBuffer buffer, int start, int end) {
+		outer: for (int transport = 0; transport < TRANSPORT_NAMES.length; transport++) {
+			byte[] name = TRANSPORT_NAMES[transport];
+			if (name.length != end - start) continue;
+			for (int i = 0; i < name.length; i++)
+				if (buffer.get(start + i) != name[i]) continue outer;
+			return transport;
+		}
+		return -1;
+	}
+
+	private static String[] parseLine(int line, List<String> lines, int expectedSegments) {
 		String currentLine = lines.get(line);
 		if (currentLine == null) throw new NullPointerException("Line " + line + " is null");
-		String[] segments = currentLine.split(Pattern.quote(delimiter));
+		String[] segments = DELIMITER_PATTERN.split(currentLine);
 		if (segments.length != expectedSegments) throw new IllegalArgumentException(
-				"Expected " + expectedSegments + " occurrences of delimiter \"" + delimiter
+				"Expected " + expectedSegments + " occurrences of delimiter \"" + DELIMITER
 						+ "\" on line " + line + ":\n\t" + line);
 		return segments;
 
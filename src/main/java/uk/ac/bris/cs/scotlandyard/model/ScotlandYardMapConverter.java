@@ -0,0 +1,110 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.IntGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * Converts Scotland Yard maps in the text format of the {@code graph.txt} and
+ * {@code pos.txt} resources into the binary map format loaded by
+ * {@link ScotlandYardGraphReader#fromMappedFile(Path)}, so that large maps
+ * are parsed once instead of on every start.
+ */
+public final class ScotlandYardMapConverter {
+
+	private ScotlandYardMapConverter() {
+		// nope
+	}
+
+	/**
+	 * Converts text map files from the command line
+	 *
+	 * @param args the graph file, optionally the positions file, and the
+	 *        binary file to write
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2 && args.length != 3) {
+			System.err.println("Usage: ScotlandYardMapConverter <graph.txt> [pos.txt] <map.bin>");
+			System.exit(1);
+		}
+		Path positions = args.length == 3 ? Paths.get(args[1]) : null;
+		convert(Paths.get(args[0]), positions, Paths.get(args[args.length - 1]));
+	}
+
+	/**
+	 * Converts text map files into a binary map file
+	 *
+	 * @param graph the graph file in the format of {@code graph.txt}; not
+	 *        null
+	 * @param positions the positions file in the format of {@code pos.txt},
+	 *        null for a map without positions
+	 * @param out the binary file to write; not null, replaced if it exists
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static void convert(Path graph, Path positions, Path out) throws IOException {
+		write(ScotlandYardGraphReader.fromPath(requireNonNull(graph)),
+				positions == null ? Collections.emptyMap()
+						: StandardGame.positionEntries(
+								Files.readAllLines(positions, StandardCharsets.UTF_8)),
+				out);
+	}
+
+	/**
+	 * Writes a graph and its map positions as a binary map file, see
+	 * {@link ScotlandYardGraphReader#fromMappedFile(Path)} for the format
+	 *
+	 * @param graph the graph; not null, with non-negative node values
+	 * @param positions map of node value to x and y coordinates; not null
+	 * @param out the binary file to write; not null, replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Graph<Integer, Transport> graph,
+			Map<Integer, Entry<Integer, Integer>> positions, Path out) throws IOException {
+		IntGraph<Transport> csr = IntGraph.copyOf(requireNonNull(graph), Transport.class);
+		requireNonNull(positions);
+		requireNonNull(out);
+		try (DataOutputStream stream = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(out)))) {
+			stream.writeInt(ScotlandYardGraphReader.MAGIC);
+			stream.writeInt(ScotlandYardGraphReader.VERSION);
+			stream.writeInt(csr.size());
+			stream.writeInt(csr.maxNode());
+			stream.writeInt(csr.edgeCount());
+			stream.writeInt(positions.size());
+			for (Node<Integer> node : csr.getNodes())
+				stream.writeInt(node.value());
+			for (int node = 0; node <= csr.maxNode(); node++)
+				stream.writeInt(csr.edgeStart(node));
+			stream.writeInt(csr.edgeCount());
+			for (int edge = 0; edge < csr.edgeCount(); edge++)
+				stream.writeInt(csr.target(edge));
+			for (int edge = 0; edge < csr.edgeCount(); edge++)
+				stream.writeByte(csr.data(edge));
+			for (long i = csr.edgeCount(); i < ScotlandYardGraphReader
+					.paddedSize(csr.edgeCount()); i++)
+				stream.writeByte(0);
+			for (Entry<Integer, Entry<Integer, Integer>> position : new TreeMap<>(positions)
+					.entrySet()) {
+				stream.writeInt(position.getKey());
+				stream.writeInt(position.getValue().getKey());
+				stream.writeInt(position.getValue().getValue());
+			}
+		}
+	}
+
+}
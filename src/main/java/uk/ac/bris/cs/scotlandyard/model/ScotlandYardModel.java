@@ -1,98 +1,82 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
-import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
 import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.MRX_WON;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYardEngine.ONGOING;
 import static uk.ac.bris.cs.scotlandyard.model.Ticket.*;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import uk.ac.bris.cs.gamekit.graph.Edge;
-import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.gamekit.graph.Graph;
 
 public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, MoveVisitor {
     private final List<Boolean> rounds;
-    private final Graph<Integer, Transport> graph;
     private final  ScotlandYardPlayer mrX;
-    private final List<PlayerConfiguration> startPlayers = new ArrayList<>();
     private final List<ScotlandYardPlayer> playerList = new ArrayList<>();
+    private final ScotlandYardPlayer[] playersByColour = new ScotlandYardPlayer[Colour.values().length];
+    private final List<Colour> colours;
+    private final List<Boolean> roundsView;
+    private final Graph<Integer, Transport> graphView;
 	private final Set<Colour> winners = new HashSet<>();
     private ScotlandYardPlayer currentPlayer;
     private Set<Move> availableMoves;
     private final List<Spectator> spectators = new ArrayList<>();
+    private final MoveSource moveSource;
+    private final long[] occupied;
     private int roundNum = 0;
     private int playerNum = 0;
     private int lastKnownLocation = 0;
-    private boolean gameOver = false;
+    private long zobristKey;
+    private ViewSnapshot snapshot;
+    private boolean gameOver;
+    private final Deque<Runnable> pendingTurns = new ArrayDeque<>();
+    private boolean dispatching = false;
 
 	public ScotlandYardModel(List<Boolean> rounds, Graph<Integer, Transport> graph,
 			PlayerConfiguration mrX, PlayerConfiguration firstDetective,
 			PlayerConfiguration... restOfTheDetectives) {
-                this.rounds = requireNonNull(rounds);
-                this.graph = requireNonNull(graph);
-                this.startPlayers.add(requireNonNull(mrX));
-                this.startPlayers.add(firstDetective);
-				requireNonNull(firstDetective);
-
-                for(PlayerConfiguration detective : restOfTheDetectives) {
-                	this.startPlayers.add(requireNonNull(detective));
-				}
-
-				if (rounds.isEmpty()) throw new IllegalArgumentException("Empty rounds");
-	 			if (graph.isEmpty()) throw new IllegalArgumentException("Empty map (graph)");
-	 			if (mrX.colour != Black) throw new IllegalArgumentException("MrX should be Black");
-
-	 			checkDuplicateLocations(startPlayers);
-	 			checkDuplicateColours(startPlayers);
-	 			checkPlayerTickets(startPlayers);
-
-	 			for(PlayerConfiguration player : startPlayers){
-	 				playerList.add(new ScotlandYardPlayer(player.player, player.colour, player.location, player.tickets));
-				}
-
-				this.mrX = playerList.get(0);
-				this.currentPlayer = this.mrX;
-
-			if (this.detectivesAllStuck() || this.validMoves(this.mrX).isEmpty()) gameOver = true;
+		this(new GameTemplate(rounds, graph, mrX, firstDetective, restOfTheDetectives));
 	}
 
-	// Checks all startPlayers for duplicate locations.
-	private void checkDuplicateLocations(List<PlayerConfiguration> startPlayers) {
-		Set<Integer> locations = new HashSet<>();
-		for(PlayerConfiguration player : startPlayers) {
-			if (locations.contains(player.location)) throw new IllegalArgumentException("Duplicate location");
-			else locations.add(player.location);
-		}
+	private ScotlandYardModel(GameTemplate template) {
+		this(template, template.configuredPlayers(), template.locations(), template.isOverAtStart(),
+				template.zobristKey());
 	}
 
-	// Checks all startPlayers for duplicate colours.
-    private void checkDuplicateColours(List<PlayerConfiguration> startPlayers) {
-        Set<Colour> colours = new HashSet<>();
-        for(PlayerConfiguration player : startPlayers) {
-            if (colours.contains(player.colour)) throw new IllegalArgumentException("Duplicate colour");
-            else colours.add(player.colour);
-        }
-    }
-
-	// Validates the tickets of all startPlayers.
-    private void checkPlayerTickets(List<PlayerConfiguration> startPlayers) {
-		for (PlayerConfiguration player : startPlayers) {
-			if (player.tickets.size() != 5) throw new IllegalArgumentException("Player does not have required tickets");
-			if (!player.equals(this.startPlayers.get(0))) validateDetectiveTickets(player);
+	// Creates a game from a validated template, see GameTemplate.newGame(). Players and locations
+	// are indexed like the template's colours, gameOver and zobristKey are precomputed by the template.
+	ScotlandYardModel(GameTemplate template, Player[] players, int[] locations, boolean gameOver,
+			long zobristKey) {
+		this.rounds = template.getRounds();
+		this.roundsView = this.rounds;
+		this.graphView = template.getGraph();
+		this.colours = template.getPlayers();
+		Colour[] colours = template.colours();
+		for (int i = 0; i < colours.length; i++) {
+			ScotlandYardPlayer player = new ScotlandYardPlayer(players[i], colours[i], locations[i],
+					template.tickets(i));
+			this.playerList.add(player);
+			this.playersByColour[colours[i].ordinal()] = player;
 		}
-    }
+		this.mrX = this.playerList.get(0);
 
-	// Checks a detective does not have any Mr X tickets.
-	private void validateDetectiveTickets(PlayerConfiguration player) {
-		if (player.tickets.get(Secret) != 0) throw new IllegalArgumentException("Detective has a Secret ticket");
-		if (player.tickets.get(Double) != 0) throw new IllegalArgumentException("Detective has a Double ticket");
+		this.moveSource = template.newMoveSource();
+		this.occupied = template.newOccupied();
+		for (int i = 1; i < locations.length; i++) {
+			Bitboards.set(this.occupied, locations[i]);
+		}
+		this.currentPlayer = this.mrX;
+		this.zobristKey = zobristKey;
+		this.gameOver = gameOver;
 	}
 
 	@Override
@@ -116,75 +100,38 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
         if (this.gameOver) throw new IllegalStateException("Game won");
         this.playerNum = 0;
         this.availableMoves = validMoves(this.mrX);
-        if (this.availableMoves.isEmpty()) gameOver();
-		Set<Move> playerMoves = unmodifiableSet(this.availableMoves);
-		Player player = this.currentPlayer.player();
+        if (this.availableMoves.isEmpty()) gameOver(false);
         this.spectators.forEach(spectator -> spectator.onRoundStarted(this, getCurrentRound()));
-        player.makeMove(this, this.currentPlayer.location(), playerMoves, this);
+        requestMove(this.availableMoves);
 	}
 
-	// Creates a set of valid moves for a detective.
-	private Set<Move> validMoves(ScotlandYardPlayer player) {
-		Collection<Edge<Integer,Transport>> edgesFrom = this.graph.getEdgesFrom(graph.getNode(player.location()));
-
-		Set<TicketMove> firstMoves = edgesFrom.stream()
-				.filter(edge -> !nodeOccupied(edge))
-				.map(edge -> new TicketMove(player.colour(), Ticket.fromTransport(edge.data()), edge.destination().value()))
-                .flatMap(ticketMove -> addSecretMoves(ticketMove, player).stream())
-                .filter(move -> player.hasTickets(move.ticket()))
-				.collect(Collectors.toSet());
-
-        Set<DoubleMove> doubleMoves = firstMoves.stream()
-                .flatMap(move -> doubleMovesFrom(move, player).stream())
-                .filter(doubleMove -> canUseDouble(doubleMove, player))
-                .collect(Collectors.toSet());
-
-        Set<Move> validMoves = new HashSet<>();
-        validMoves.addAll(firstMoves);
-        validMoves.addAll(doubleMoves);
-
-        return validMoves;
+	// Queues the current player's turn, then runs queued turns unless they are already being run
+	// further up the stack. Players that call accept() from inside makeMove() therefore return to
+	// this loop instead of nesting the next player's makeMove(), keeping the stack depth constant.
+	private void requestMove(Set<Move> moves) {
+		ScotlandYardPlayer player = this.currentPlayer;
+		int location = player.location();
+		this.pendingTurns.add(() -> player.player().makeMove(this, location, moves, this));
+		if (this.dispatching) return;
+		this.dispatching = true;
+		try {
+			Runnable turn;
+			while ((turn = this.pendingTurns.poll()) != null) turn.run();
+		} finally {
+			this.dispatching = false;
+			this.pendingTurns.clear();
+		}
 	}
 
-	// Returns all double moves from the firstMove
-    private Set<DoubleMove> doubleMovesFrom(TicketMove firstMove, ScotlandYardPlayer player) {
-        Collection<Edge<Integer,Transport>> edgesFrom = this.graph.getEdgesFrom(graph.getNode(firstMove.destination()));
-
-        return edgesFrom.stream()
-            .filter(edge -> !nodeOccupied(edge))
-            .map(edge -> new TicketMove(firstMove.colour(), Ticket.fromTransport(edge.data()), edge.destination().value()))
-            .flatMap(ticketMove -> addSecretMoves(ticketMove, player).stream())
-            .map(secondMove -> new DoubleMove(firstMove.colour(), firstMove, secondMove))
-            .collect(Collectors.toSet());
-    }
-
-    // Returns a set containing the original move and the corresponding secret move if player has a secret ticket
-    private Set<TicketMove> addSecretMoves(TicketMove originalMove, ScotlandYardPlayer player) {
-	    Set<TicketMove> newMoves = new HashSet<>();
-	    newMoves.add(originalMove);
-	    if (player.hasTickets(Secret)) newMoves.add(new TicketMove(Black, Secret, originalMove.destination()));
-	    return newMoves;
-    }
-
-    // Returns true if the player is able to use the double ticket
-    private boolean canUseDouble(DoubleMove doubleMove, ScotlandYardPlayer player) {
-	    boolean sameTicketValid = true;
-	    if (doubleMove.hasSameTicket()) {
-	        sameTicketValid = player.hasTickets(doubleMove.firstMove().ticket(),2);
-        }
-	    return (player.hasTickets(doubleMove.firstMove().ticket())
-                && player.hasTickets(doubleMove.secondMove().ticket())
-                && player.hasTickets(Double)
-                && this.roundNum <= (rounds.size()-2)
-                && sameTicketValid);
-    }
+	// Creates the set of valid moves for a player, detectives that cannot move get a pass move.
+	private Set<Move> validMoves(ScotlandYardPlayer player) {
+		return this.moveSource.validMoves(player.colour(), player.location(), player.ticketCounts(),
+				MoveGenerator.doubleAllowed(this.roundNum, rounds.size()), this.occupied, player.isDetective());
+	}
 
-    // Returns true if the destination of an edge is occupied by a detective.
-	private Boolean nodeOccupied(Edge edge) {
-		for (ScotlandYardPlayer player : playerList) {
-			if ((int)edge.destination().value() == player.location() && !player.isMrX()) return true;
-			}
-		return false;
+	// Returns true if the player has at least one valid move.
+	private boolean canMove(ScotlandYardPlayer player) {
+		return this.moveSource.canMove(player.location(), player.ticketCounts(), this.occupied);
 	}
 
 	@Override
@@ -194,13 +141,7 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 
 	@Override
 	public List<Colour> getPlayers() {
-		List<Colour> colours = new ArrayList<>();
-
-		for(PlayerConfiguration player : startPlayers){
-			colours.add(player.colour);
-		}
-
-		return Collections.unmodifiableList(colours);
+		return this.colours;
 	}
 
 	@Override
@@ -210,29 +151,32 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 
 	@Override
 	public int getPlayerLocation(Colour colour) {
-		int location = 0;
-
-		for(ScotlandYardPlayer player : playerList) {
-			if(player.colour().equals(Black)){
-				location = this.lastKnownLocation;
-			}
-			else if(player.colour().equals(colour)) {
-				location = player.location();
-			}
-		}
-
-		return location;
+		ScotlandYardPlayer player = this.playersByColour[colour.ordinal()];
+		if (player == null || player.isMrX()) return this.lastKnownLocation;
+		return player.location();
 	}
 
 	@Override
 	public int getPlayerTickets(Colour colour, Ticket ticket) {
-		for(ScotlandYardPlayer player : playerList) {
-			if(player.colour().equals(colour)) {
-				return player.tickets().get(ticket);
-			}
+		ScotlandYardPlayer player = this.playersByColour[colour.ordinal()];
+		if (player == null) return -1;
+		return player.ticketCount(ticket);
+	}
+
+	@Override
+	public int getDetectiveLocations(int[] out) {
+		int count = this.playerList.size() - 1;
+		for (int i = 0; i < count; i++) {
+			out[i] = this.playerList.get(i + 1).location();
 		}
+		return count;
+	}
 
-		return -1;
+	@Override
+	public void getPlayerTickets(Colour colour, int[] out) {
+		ScotlandYardPlayer player = this.playersByColour[colour.ordinal()];
+		if (player == null) Arrays.fill(out, 0, Ticket.values().length, -1);
+		else System.arraycopy(player.ticketCounts(), 0, out, 0, player.ticketCounts().length);
 	}
 
 	@Override
@@ -257,12 +201,23 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 
 	@Override
 	public List<Boolean> getRounds() {
-		return Collections.unmodifiableList(rounds);
+		return this.roundsView;
 	}
 
 	@Override
 	public Graph<Integer, Transport> getGraph() {
-		return new ImmutableGraph(graph);
+		return this.graphView;
+	}
+
+	@Override
+	public long getZobristKey() {
+		return this.zobristKey;
+	}
+
+	@Override
+	public ScotlandYardView snapshot() {
+		if (this.snapshot == null) this.snapshot = ViewSnapshot.of(this);
+		return this.snapshot;
 	}
 
 	@Override
@@ -274,35 +229,42 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 
         this.playerNum++;
         if (playerNum < this.playerList.size()) {
-            this.currentPlayer = this.playerList.get(playerNum);
-            Player player = this.currentPlayer.player();
+            setCurrentPlayer(this.playerList.get(playerNum));
             this.availableMoves = validMoves(this.currentPlayer);
-            if (availableMoves.isEmpty()) availableMoves.add(new PassMove(currentPlayer.colour()));
-            Set<Move> playerMoves = unmodifiableSet(this.availableMoves);
-			if (!this.gameOver) player.makeMove(this, this.currentPlayer.location(), playerMoves, this);
+			if (!this.gameOver) requestMove(this.availableMoves);
 		}
         else {
-            this.currentPlayer = this.mrX;
-            if (this.roundNum >= this.rounds.size()) gameOver();
-            if (validMoves(this.mrX).isEmpty()) gameOver();
-            if (detectivesAllStuck()) gameOver();
+            setCurrentPlayer(this.mrX);
+            if (this.gameOver) return;
+            int status = ScotlandYardEngine.rotationEnd(this.roundNum, this.rounds.size(),
+                    this.playerList.size(), i -> canMove(this.playerList.get(i)));
+            if (status != ONGOING) gameOver(status == MRX_WON);
             if (!isGameOver()) this.spectators.forEach(spectator -> spectator.onRotationComplete(this));
 		}
     }
 
 	public void visit(TicketMove move) {
-		this.currentPlayer.removeTicket(move.ticket());
+		adjustTickets(this.currentPlayer, move.ticket(), -1);
+		if (this.currentPlayer.isDetective()) {
+			Bitboards.clear(this.occupied, this.currentPlayer.location());
+			Bitboards.set(this.occupied, move.destination());
+			this.zobristKey ^= Zobrist.location(this.currentPlayer.colour(), this.currentPlayer.location())
+					^ Zobrist.location(this.currentPlayer.colour(), move.destination());
+		}
 		this.currentPlayer.location(move.destination());
+		this.snapshot = null;
 		TicketMove newMove = move;
 
 		if (this.currentPlayer.isMrX()) {
             if(isRevealRound()) {
-            	this.lastKnownLocation = this.currentPlayer.location();
+            	reveal(this.currentPlayer.location());
             }
             else {
-            	newMove = new TicketMove(Black, move.ticket(), this.lastKnownLocation);
+            	newMove = Moves.ticket(Black, move.ticket(), this.lastKnownLocation);
 			}
+            this.zobristKey ^= Zobrist.round(this.roundNum) ^ Zobrist.round(this.roundNum + 1);
             this.roundNum++;
+            this.snapshot = null;
             this.spectators.forEach(spectator -> spectator.onRoundStarted(this, roundNum));
         }
 
@@ -311,22 +273,22 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
 
         if (this.currentPlayer.isDetective()) {
 
-            if (this.currentPlayer.location() == this.mrX.location() && roundNum > 0) gameOver();
-            this.mrX.addTicket(move.ticket());
+            if (this.currentPlayer.location() == this.mrX.location() && roundNum > 0) gameOver(false);
+            adjustTickets(this.mrX, move.ticket(), 1);
         }
 	}
 
 	public void visit(DoubleMove move) {
-		this.currentPlayer.removeTicket(Double);
+		adjustTickets(this.currentPlayer, Double, -1);
 
 		int dest1 = move.firstMove().destination();
 		int dest2 = move.finalDestination();
 
 		if (!rounds.get(this.roundNum)) dest1 = this.lastKnownLocation;
-		else this.lastKnownLocation = dest1;
+		else reveal(dest1);
 		if (!rounds.get(this.roundNum+1)) dest2 = this.lastKnownLocation;
 
-		DoubleMove newMove = new DoubleMove(Black, move.firstMove().ticket(), dest1, move.secondMove().ticket(), dest2);
+		DoubleMove newMove = Moves.doubleMove(Black, move.firstMove().ticket(), dest1, move.secondMove().ticket(), dest2);
 
 		this.spectators.forEach(spectator -> spectator.onMoveMade(this, newMove));
 		move.firstMove().visit(this);
@@ -337,10 +299,35 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
         this.spectators.forEach(spectator -> spectator.onMoveMade(this, move));
     }
 
-    // Sets game to be over, notifies players
-    private void gameOver() {
+	// Changes a player's ticket count and its part of the Zobrist key.
+	private void adjustTickets(ScotlandYardPlayer player, Ticket ticket, int by) {
+		int count = player.ticketCount(ticket);
+		if (by > 0) player.addTicket(ticket);
+		else player.removeTicket(ticket);
+		this.zobristKey ^= Zobrist.tickets(player.colour(), ticket, count)
+				^ Zobrist.tickets(player.colour(), ticket, count + by);
+		this.snapshot = null;
+	}
+
+	// Updates Mr X's last known location and its part of the Zobrist key.
+	private void reveal(int location) {
+		this.zobristKey ^= Zobrist.location(Black, this.lastKnownLocation) ^ Zobrist.location(Black, location);
+		this.lastKnownLocation = location;
+		this.snapshot = null;
+	}
+
+	// Changes the current player and its part of the Zobrist key.
+	private void setCurrentPlayer(ScotlandYardPlayer player) {
+		this.zobristKey ^= Zobrist.currentPlayer(this.currentPlayer.colour()) ^ Zobrist.currentPlayer(player.colour());
+		this.currentPlayer = player;
+		this.snapshot = null;
+	}
+
+    // Sets game to be over with Mr X or the detectives as winners, notifies players
+    private void gameOver(boolean mrXWon) {
 	    this.gameOver = true;
-	    if (this.currentPlayer.isMrX()) this.winners.add(Black);
+	    this.snapshot = null;
+	    if (mrXWon) this.winners.add(Black);
 	    else {
 	        for (ScotlandYardPlayer player: playerList) {
 	            if (player.colour() != Black) this.winners.add(player.colour());
@@ -348,13 +335,4 @@ public class ScotlandYardModel implements ScotlandYardGame, Consumer<Move>, Move
         }
         this.spectators.forEach(spectator -> spectator.onGameOver(this, this.winners));
     }
-
-    // Checks whether all detectives have any valid moves
-    private boolean detectivesAllStuck() {
-	    boolean areStuck = true;
-	    for (ScotlandYardPlayer player : playerList) {
-	        if (!player.isMrX() && !validMoves(player).isEmpty()) areStuck = false;
-        }
-        return areStuck;
-    }
 }
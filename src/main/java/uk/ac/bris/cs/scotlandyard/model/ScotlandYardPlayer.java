@@ -1,7 +1,11 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A class that contains all the information about a particular player.
@@ -10,8 +14,11 @@ public class ScotlandYardPlayer {
 
 	private final Player player;
 	private final Colour colour;
+	private static final Ticket[] TICKETS = Ticket.values();
+
 	private int location;
-	private final Map<Ticket, Integer> tickets;
+	private final int[] tickets = new int[TICKETS.length];
+	private final Map<Ticket, Integer> ticketView = new TicketView();
 
 	/**
 	 * Constructs a new ScotlandYardPlayer object.
@@ -26,7 +33,17 @@ public class ScotlandYardPlayer {
 		this.player = player;
 		this.colour = colour;
 		this.location = location;
-		this.tickets = new HashMap<>(tickets);
+		for (Ticket ticket : TICKETS) {
+			this.tickets[ticket.ordinal()] = tickets.getOrDefault(ticket, 0);
+		}
+	}
+
+	// Constructs a player from ticket counts indexed by ordinal, which are copied.
+	ScotlandYardPlayer(Player player, Colour colour, int location, int[] tickets) {
+		this.player = player;
+		this.colour = colour;
+		this.location = location;
+		System.arraycopy(tickets, 0, this.tickets, 0, this.tickets.length);
 	}
 
 	/**
@@ -78,9 +95,27 @@ public class ScotlandYardPlayer {
 	}
 
 	/**
-	 * @return the player's current tickets.
+	 * @return a read-only view of the player's current tickets.
 	 */
 	public Map<Ticket, Integer> tickets() {
+		return ticketView;
+	}
+
+	/**
+	 * @param ticket the ticket; not null
+	 * @return the number of the given ticket the player has.
+	 */
+	public int ticketCount(Ticket ticket) {
+		return tickets[ticket.ordinal()];
+	}
+
+	/**
+	 * The player's ticket counts indexed by {@link Ticket#ordinal()}. This is
+	 * the backing array, it must not be modified.
+	 *
+	 * @return the ticket counts; never null
+	 */
+	int[] ticketCounts() {
 		return tickets;
 	}
 
@@ -90,7 +125,7 @@ public class ScotlandYardPlayer {
 	 * @param ticket the ticket to be added.
 	 */
 	public void addTicket(Ticket ticket) {
-		adjustTicketCount(ticket, 1);
+		tickets[ticket.ordinal()]++;
 	}
 
 	/**
@@ -99,14 +134,7 @@ public class ScotlandYardPlayer {
 	 * @param ticket the ticket to be removed.
 	 */
 	public void removeTicket(Ticket ticket) {
-		adjustTicketCount(ticket, -1);
-	}
-
-	private void adjustTicketCount(Ticket ticket, int by) {
-		Integer ticketCount = tickets.get(ticket);
-		ticketCount += by;
-		tickets.remove(ticket);
-		tickets.put(ticket, ticketCount);
+		tickets[ticket.ordinal()]--;
 	}
 
 	/**
@@ -116,7 +144,7 @@ public class ScotlandYardPlayer {
 	 * @return true if the player has the given ticket, false otherwise
 	 */
 	public boolean hasTickets(Ticket ticket) {
-		return tickets.get(ticket) != 0;
+		return tickets[ticket.ordinal()] != 0;
 	}
 
 	/**
@@ -129,7 +157,69 @@ public class ScotlandYardPlayer {
 	 *         otherwise
 	 */
 	public boolean hasTickets(Ticket ticket, int quantityInclusive) {
-		return tickets.get(ticket) >= quantityInclusive;
+		return tickets[ticket.ordinal()] >= quantityInclusive;
+	}
+
+	/**
+	 * Checks whether the player has the tickets for a double move with the
+	 * given tickets, including the double ticket itself
+	 *
+	 * @param first the ticket of the first move; not null
+	 * @param second the ticket of the second move; not null
+	 * @return true if the player can pay for the double move, false otherwise
+	 */
+	public boolean hasTickets(Ticket first, Ticket second) {
+		return tickets[Ticket.Double.ordinal()] > 0
+				&& tickets[first.ordinal()] > 0
+				&& tickets[second.ordinal()] >= (first == second ? 2 : 1);
+	}
+
+	// read-only map over the ticket array, always contains every ticket
+	private final class TicketView extends AbstractMap<Ticket, Integer> {
+
+		@Override
+		public Integer get(Object key) {
+			return key instanceof Ticket ? tickets[((Ticket) key).ordinal()] : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof Ticket;
+		}
+
+		@Override
+		public int size() {
+			return TICKETS.length;
+		}
+
+		@Override
+		public Set<Entry<Ticket, Integer>> entrySet() {
+			return new AbstractSet<Entry<Ticket, Integer>>() {
+				@Override
+				public Iterator<Entry<Ticket, Integer>> iterator() {
+					return new Iterator<Entry<Ticket, Integer>>() {
+						private int index;
+
+						@Override
+						public boolean hasNext() {
+							return index < TICKETS.length;
+						}
+
+						@Override
+						public Entry<Ticket, Integer> next() {
+							if (!hasNext()) throw new NoSuchElementException();
+							Ticket ticket = TICKETS[index++];
+							return new SimpleImmutableEntry<>(ticket, tickets[ticket.ordinal()]);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return TICKETS.length;
+				}
+			};
+		}
 	}
 
 	@Override
@@ -138,7 +228,7 @@ public class ScotlandYardPlayer {
 		sb.append("player=").append(player);
 		sb.append(", colour=").append(colour);
 		sb.append(", location=").append(location);
-		sb.append(", tickets=").append(tickets);
+		sb.append(", tickets=").append(ticketView);
 		sb.append('}');
 		return sb.toString();
 	}
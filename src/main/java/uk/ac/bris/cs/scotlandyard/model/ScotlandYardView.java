@@ -109,4 +109,61 @@ public interface ScotlandYardView {
 	 */
 	Graph<Integer, Transport> getGraph();
 
+	/**
+	 * Copies the locations of all detectives, in the order of
+	 * {@link #getPlayers()}, into an array so games can answer without
+	 * allocating
+	 *
+	 * @param out the array to fill, at least as long as the number of
+	 *        detectives; not null
+	 * @return the number of detectives
+	 */
+	default int getDetectiveLocations(int[] out) {
+		List<Colour> players = getPlayers();
+		for (int i = 1; i < players.size(); i++)
+			out[i - 1] = getPlayerLocation(players.get(i));
+		return players.size() - 1;
+	}
+
+	/**
+	 * Copies the ticket counts of a player into an array indexed by
+	 * {@link Ticket#ordinal()}, see {@link #getDetectiveLocations(int[])}.
+	 * Like {@link #getPlayerTickets(Colour, Ticket)} every count is -1 for a
+	 * colour that is not playing.
+	 *
+	 * @param colour the colour of the player; not null
+	 * @param out the array to fill, at least {@code Ticket.values().length}
+	 *        long; not null
+	 */
+	default void getPlayerTickets(Colour colour, int[] out) {
+		for (Ticket ticket : Ticket.values())
+			out[ticket.ordinal()] = getPlayerTickets(colour, ticket);
+	}
+
+	/**
+	 * A 64-bit {@link Zobrist} key of the position as seen through this view:
+	 * the player locations (MrX's last known location for MrX), ticket counts,
+	 * current round and current player. Equal positions have equal keys, so the
+	 * key can be used for transposition tables and evaluation caches. The
+	 * default implementation computes the key from scratch, games should
+	 * maintain it incrementally.
+	 *
+	 * @return the key of the current position
+	 */
+	default long getZobristKey() {
+		return Zobrist.of(this);
+	}
+
+	/**
+	 * An immutable copy of this view as it is now, which stays consistent and
+	 * can be read from other threads while the game carries on. The default
+	 * implementation copies the view every time, games should reuse the
+	 * snapshot until their state changes.
+	 *
+	 * @return the snapshot; never null
+	 */
+	default ScotlandYardView snapshot() {
+		return ViewSnapshot.of(this);
+	}
+
 }
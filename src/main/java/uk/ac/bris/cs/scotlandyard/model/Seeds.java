@@ -0,0 +1,72 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A hierarchy of seeds for reproducible simulations: a run seed derives one
+ * seed per game and a game seed derives one seed per player. Seeds are
+ * derived by index with the SplitMix64 mixing function rather than by
+ * drawing from a shared generator, so game {@code n} of a run gets the same
+ * seed no matter which thread plays it or in which order, and no random
+ * number generator is ever shared between threads.
+ */
+public final class Seeds {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private Seeds() {}
+
+	/**
+	 * @param runSeed the seed of the whole run
+	 * @param game the index of the game in the run
+	 * @return the seed of the game
+	 */
+	public static long game(long runSeed, long game) {
+		return mix(runSeed + GOLDEN_GAMMA * (game + 1));
+	}
+
+	/**
+	 * @param gameSeed the seed of the game, see {@link #game(long, long)}
+	 * @param colour the colour of the player; not null
+	 * @return the seed of the player in the game
+	 */
+	public static long player(long gameSeed, Colour colour) {
+		return mix(mix(gameSeed) + GOLDEN_GAMMA * (colour.ordinal() + 1));
+	}
+
+	/**
+	 * @param seed a seed from this class
+	 * @return a new generator for the seed; never null
+	 */
+	public static SplittableRandom random(long seed) {
+		return new SplittableRandom(seed);
+	}
+
+	/**
+	 * Shuffles a list in place with a Fisher-Yates shuffle, the
+	 * {@link SplittableRandom} equivalent of
+	 * {@link java.util.Collections#shuffle(List, java.util.Random)}
+	 *
+	 * @param list the list; not null
+	 * @param random the generator; not null
+	 */
+	public static <T> void shuffle(List<T> list, SplittableRandom random) {
+		requireNonNull(list);
+		requireNonNull(random);
+		for (int i = list.size() - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			list.set(j, list.set(i, list.get(j)));
+		}
+	}
+
+	// the finaliser of SplitMix64
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
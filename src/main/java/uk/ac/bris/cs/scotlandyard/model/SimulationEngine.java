@@ -0,0 +1,201 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays headless games on a {@link ScotlandYardEngine} in a flat loop. Moves
+ * are chosen by {@link Policy} functions instead of {@link Player} callbacks,
+ * so there is no recursion and no {@link Move} is ever allocated. Intended for
+ * rollout based AIs and balance studies that need millions of playouts.
+ *
+ * <br>
+ * Instances reuse a move buffer and must not be shared between threads.
+ */
+public final class SimulationEngine {
+
+	/**
+	 * Chooses a move for the current player of an engine
+	 */
+	@FunctionalInterface
+	public interface Policy {
+
+		/**
+		 * Chooses one of the given moves
+		 *
+		 * @param engine the engine at the position to move from, must not be
+		 *        modified; never null
+		 * @param moves the valid packed moves of the current player; never
+		 *        empty
+		 * @return the index of the chosen move in {@code moves}
+		 */
+		int choose(ScotlandYardEngine engine, MoveBuffer moves);
+
+	}
+
+	/**
+	 * A policy that picks a uniformly random move
+	 *
+	 * @param random the source of randomness, see {@link Seeds#random(long)};
+	 *        not null and not shared with other threads
+	 * @return the policy; never null
+	 */
+	public static Policy random(SplittableRandom random) {
+		requireNonNull(random);
+		return (engine, moves) -> random.nextInt(moves.size());
+	}
+
+	/**
+	 * A policy that always picks the first move in the order of
+	 * {@link ScotlandYardEngine#generateMoves(MoveBuffer)}. This is not the
+	 * move {@code FirstMoveAI} picks, which takes the first move of the set
+	 * handed out by {@link ScotlandYardModel}
+	 *
+	 * @return the policy; never null
+	 */
+	public static Policy first() {
+		return (engine, moves) -> 0;
+	}
+
+	/**
+	 * Aggregated results of a batch of playouts
+	 */
+	public static final class Statistics {
+
+		private final int playouts;
+		private final int mrXWins;
+		private final long moves;
+		private final long nanos;
+
+		private Statistics(int playouts, int mrXWins, long moves, long nanos) {
+			this.playouts = playouts;
+			this.mrXWins = mrXWins;
+			this.moves = moves;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return the number of playouts played
+		 */
+		public int playouts() {
+			return playouts;
+		}
+
+		/**
+		 * @return the number of playouts MrX won
+		 */
+		public int mrXWins() {
+			return mrXWins;
+		}
+
+		/**
+		 * @return the number of playouts the detectives won
+		 */
+		public int detectiveWins() {
+			return playouts - mrXWins;
+		}
+
+		/**
+		 * @return the total number of moves played over all playouts
+		 */
+		public long moves() {
+			return moves;
+		}
+
+		/**
+		 * @return the wall clock time of all playouts in nanoseconds
+		 */
+		public long nanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the ratio of playouts won by MrX; 0 if nothing was played
+		 */
+		public double mrXWinRate() {
+			return playouts == 0 ? 0 : (double) mrXWins / playouts;
+		}
+
+		/**
+		 * @return the average number of moves per playout
+		 */
+		public double averageMoves() {
+			return playouts == 0 ? 0 : (double) moves / playouts;
+		}
+
+		/**
+		 * @return the throughput in playouts per second
+		 */
+		public double playoutsPerSecond() {
+			return nanos == 0 ? 0 : playouts * 1e9 / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"Statistics{playouts=%d, mrXWinRate=%.3f, averageMoves=%.1f, playouts/s=%.0f}",
+					playouts, mrXWinRate(), averageMoves(), playoutsPerSecond());
+		}
+	}
+
+	private final Policy mrX;
+	private final Policy detectives;
+	private final MoveBuffer buffer = new MoveBuffer(1024);
+
+	/**
+	 * Creates a simulation engine
+	 *
+	 * @param mrX the policy for MrX; not null
+	 * @param detectives the policy for all detectives; not null
+	 */
+	public SimulationEngine(Policy mrX, Policy detectives) {
+		this.mrX = requireNonNull(mrX);
+		this.detectives = requireNonNull(detectives);
+	}
+
+	/**
+	 * Plays the game from the engine's position until it is over, the engine
+	 * is left at the final position
+	 *
+	 * @param engine the engine; not null
+	 * @return the number of moves played
+	 */
+	public int play(ScotlandYardEngine engine) {
+		int moves = 0;
+		while (!engine.isGameOver()) {
+			buffer.clear();
+			engine.generateMoves(buffer);
+			Policy policy = engine.currentPlayer().isMrX() ? mrX : detectives;
+			engine.apply(buffer.get(policy.choose(engine, buffer)));
+			moves++;
+		}
+		return moves;
+	}
+
+	/**
+	 * Plays a number of games from the engine's position, the engine is
+	 * rewound with {@link ScotlandYardEngine#undo()} after each playout so it
+	 * ends up at the same position
+	 *
+	 * @param engine the engine; not null
+	 * @param playouts the number of games to play; zero or greater
+	 * @return the aggregated results; never null
+	 */
+	public Statistics run(ScotlandYardEngine engine, int playouts) {
+		requireNonNull(engine);
+		if (playouts < 0) throw new IllegalArgumentException("playouts < 0");
+		int mrXWins = 0;
+		long moves = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < playouts; i++) {
+			int played = play(engine);
+			if (engine.isMrXWinner()) mrXWins++;
+			moves += played;
+			for (int j = 0; j < played; j++)
+				engine.undo();
+		}
+		return new Statistics(playouts, mrXWins, moves, System.nanoTime() - start);
+	}
+
+}
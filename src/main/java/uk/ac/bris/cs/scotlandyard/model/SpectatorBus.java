@@ -0,0 +1,319 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spectator} that decouples slow spectators from the game thread.
+ * Register the bus with {@link ScotlandYardGame#registerSpectator(Spectator)}
+ * and {@link #register(Spectator)} the actual spectators with the bus; events
+ * are queued into a bounded ring buffer and delivered, in order and in
+ * batches, on a separate thread.
+ *
+ * <br>
+ * Spectators receive a {@link ScotlandYardView#snapshot()} of the game taken
+ * when the event was published, so the view shows the position of the event
+ * and can be read safely while the game carries on.
+ *
+ * <br>
+ * Exceptions thrown by spectators are passed to the exception handler and do
+ * not stop delivery. The bus must be {@link #close() closed} to stop the
+ * delivery thread.
+ */
+public final class SpectatorBus implements Spectator, AutoCloseable {
+
+	/**
+	 * What the game thread does when the ring buffer is full
+	 */
+	public enum Backpressure {
+		/**
+		 * Wait until the delivery thread has made room, no event is lost
+		 */
+		BLOCK,
+		/**
+		 * Drop the new event, the game only waits for spectators to make
+		 * room for {@link Spectator#onGameOver(ScotlandYardView, Set)}, which
+		 * is never dropped
+		 */
+		DROP
+	}
+
+	private static final int MOVE_MADE = 0;
+	private static final int ROUND_STARTED = 1;
+	private static final int ROTATION_COMPLETE = 2;
+	private static final int GAME_OVER = 3;
+
+	// a slot in the ring buffer, slots are reused so only publishing the end
+	// of a game allocates
+	private static final class Event {
+		int type;
+		ScotlandYardView view;
+		Move move;
+		int round;
+		Set<Colour> winningPlayers;
+
+		void copyFrom(Event that) {
+			type = that.type;
+			view = that.view;
+			move = that.move;
+			round = that.round;
+			winningPlayers = that.winningPlayers;
+		}
+
+		void clear() {
+			view = null;
+			move = null;
+			winningPlayers = null;
+		}
+	}
+
+	private final List<Spectator> spectators = new CopyOnWriteArrayList<>();
+	private final Backpressure backpressure;
+	private final Consumer<Throwable> exceptionHandler;
+	private final Event[] ring;
+	private final Event[] batch;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final Condition drained = lock.newCondition();
+	private final Thread thread;
+	private long head; // next event to deliver
+	private long tail; // next free slot
+	private long delivered;
+	private long dropped;
+	private boolean closed;
+
+	/**
+	 * Creates a bus with room for 1024 events, batches of up to 64 events and
+	 * blocking backpressure
+	 *
+	 * @param exceptionHandler receives exceptions thrown by spectators; not
+	 *        null
+	 */
+	public SpectatorBus(Consumer<Throwable> exceptionHandler) {
+		this(1024, 64, Backpressure.BLOCK, exceptionHandler);
+	}
+
+	/**
+	 * Creates a bus and starts its delivery thread
+	 *
+	 * @param capacity the number of events the ring buffer holds; positive
+	 * @param batchSize the maximum number of events delivered per wake up of
+	 *        the delivery thread; positive
+	 * @param backpressure what to do when the buffer is full; not null
+	 * @param exceptionHandler receives exceptions thrown by spectators; not
+	 *        null
+	 */
+	public SpectatorBus(int capacity, int batchSize, Backpressure backpressure,
+			Consumer<Throwable> exceptionHandler) {
+		if (capacity <= 0) throw new IllegalArgumentException("capacity <= 0");
+		if (batchSize <= 0) throw new IllegalArgumentException("batchSize <= 0");
+		this.backpressure = requireNonNull(backpressure);
+		this.exceptionHandler = requireNonNull(exceptionHandler);
+		this.ring = new Event[capacity];
+		this.batch = new Event[Math.min(batchSize, capacity)];
+		for (int i = 0; i < ring.length; i++)
+			ring[i] = new Event();
+		for (int i = 0; i < batch.length; i++)
+			batch[i] = new Event();
+		this.thread = new Thread(this::deliver, "spectator-bus");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Adds a spectator that receives the events published to this bus
+	 *
+	 * @param spectator the spectator; not null
+	 */
+	public void register(Spectator spectator) {
+		requireNonNull(spectator);
+		if (spectators.contains(spectator))
+			throw new IllegalArgumentException("Spectator already registered");
+		spectators.add(spectator);
+	}
+
+	/**
+	 * Removes a spectator, events already queued may still reach it
+	 *
+	 * @param spectator the spectator; not null
+	 */
+	public void unregister(Spectator spectator) {
+		requireNonNull(spectator);
+		if (!spectators.remove(spectator))
+			throw new IllegalArgumentException("Spectator not registered");
+	}
+
+	@Override
+	public void onMoveMade(ScotlandYardView view, Move move) {
+		publish(MOVE_MADE, view, move, 0, null);
+	}
+
+	@Override
+	public void onRoundStarted(ScotlandYardView view, int round) {
+		publish(ROUND_STARTED, view, null, round, null);
+	}
+
+	@Override
+	public void onRotationComplete(ScotlandYardView view) {
+		publish(ROTATION_COMPLETE, view, null, 0, null);
+	}
+
+	@Override
+	public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+		// the game may change its set after the event, spectators see a copy
+		Set<Colour> winners = EnumSet.noneOf(Colour.class);
+		winners.addAll(winningPlayers);
+		publish(GAME_OVER, view, null, 0, Collections.unmodifiableSet(winners));
+	}
+
+	private void publish(int type, ScotlandYardView view, Move move, int round,
+			Set<Colour> winningPlayers) {
+		// the game is not thread safe, spectators read a copy of it
+		ScotlandYardView snapshot = view.snapshot();
+		lock.lock();
+		try {
+			if (closed) throw new IllegalStateException("Bus is closed");
+			while (tail - head == ring.length) {
+				if (backpressure == Backpressure.DROP && type != GAME_OVER) {
+					dropped++;
+					return;
+				}
+				notFull.awaitUninterruptibly();
+				if (closed) throw new IllegalStateException("Bus is closed");
+			}
+			Event event = ring[(int) (tail % ring.length)];
+			event.type = type;
+			event.view = snapshot;
+			event.move = move;
+			event.round = round;
+			event.winningPlayers = winningPlayers;
+			tail++;
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// the delivery thread, copies out a batch under the lock and dispatches it
+	// without holding the lock so the game thread can keep publishing
+	private void deliver() {
+		while (true) {
+			int count;
+			lock.lock();
+			try {
+				while (head == tail && !closed)
+					notEmpty.awaitUninterruptibly();
+				if (head == tail) return;
+				count = (int) Math.min(tail - head, batch.length);
+				for (int i = 0; i < count; i++) {
+					Event event = ring[(int) ((head + i) % ring.length)];
+					batch[i].copyFrom(event);
+					event.clear();
+				}
+				head += count;
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			for (int i = 0; i < count; i++) {
+				dispatch(batch[i]);
+				batch[i].clear();
+			}
+			lock.lock();
+			try {
+				delivered += count;
+				drained.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private void dispatch(Event event) {
+		for (Spectator spectator : spectators) {
+			try {
+				switch (event.type) {
+					case MOVE_MADE:
+						spectator.onMoveMade(event.view, event.move);
+						break;
+					case ROUND_STARTED:
+						spectator.onRoundStarted(event.view, event.round);
+						break;
+					case ROTATION_COMPLETE:
+						spectator.onRotationComplete(event.view);
+						break;
+					case GAME_OVER:
+						spectator.onGameOver(event.view, event.winningPlayers);
+						break;
+					default:
+						throw new AssertionError(event.type);
+				}
+			} catch (Throwable e) {
+				exceptionHandler.accept(e);
+			}
+		}
+	}
+
+	/**
+	 * Waits until every event published so far has been delivered
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void flush() throws InterruptedException {
+		lock.lock();
+		try {
+			long target = tail;
+			while (delivered < target && thread.isAlive())
+				drained.await();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of events dropped because the buffer was full, always
+	 *         zero with {@link Backpressure#BLOCK}
+	 */
+	public long dropped() {
+		lock.lock();
+		try {
+			return dropped;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops accepting events, delivers the events still queued and waits for
+	 * the delivery thread to finish. If interrupted while waiting the thread
+	 * keeps delivering in the background and the interrupt status is set
+	 * again.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if (Thread.currentThread() == thread) return;
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -6,6 +6,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -15,6 +16,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -103,6 +105,34 @@ public class StandardGame {
 		return MRX_LOCATIONS.get(new Random(seed).nextInt(MRX_LOCATIONS.size()));
 	}
 
+	/**
+	 * Generates a list of randomly selected, mutually exclusive detective
+	 * starting locations(using {@link #DETECTIVE_LOCATIONS}) from a stream of
+	 * a {@link Seeds} hierarchy
+	 *
+	 * @param random the generator of the game; not null
+	 * @param n number of detectives
+	 * @return a list of locations
+	 */
+	public static List<Integer> generateDetectiveLocations(SplittableRandom random, int n) {
+		if (n > DETECTIVE_LOCATIONS.size())
+			throw new IllegalArgumentException("n > max detective locations");
+		List<Integer> locations = new ArrayList<>(DETECTIVE_LOCATIONS);
+		Seeds.shuffle(locations, random);
+		return new ArrayList<>(locations.subList(0, n));
+	}
+
+	/**
+	 * Randomly selects a location from {@link #MRX_LOCATIONS} from a stream of
+	 * a {@link Seeds} hierarchy
+	 *
+	 * @param random the generator of the game; not null
+	 * @return the selected location
+	 */
+	public static int generateMrXLocation(SplittableRandom random) {
+		return MRX_LOCATIONS.get(random.nextInt(MRX_LOCATIONS.size()));
+	}
+
 	/**
 	 * @return mutable map of default tickets for mrX
 	 */
@@ -136,7 +166,18 @@ public class StandardGame {
 	public static final int MAP_OFFSET = 60;
 
 	public static Map<Integer, Entry<Integer, Integer>> pngMapPositionEntries() throws IOException {
-		List<String> lines = readString("pos.txt");
+		return positionEntries(readString("pos.txt"));
+	}
+
+	/**
+	 * Reads map positions in the format of the {@code pos.txt} resource
+	 *
+	 * @param lines the lines, each a node value and its x and y coordinates;
+	 *        lines that do not have three values are skipped
+	 * @return unmodifiable map of node value to coordinates including
+	 *         {@link #MAP_OFFSET}
+	 */
+	static Map<Integer, Entry<Integer, Integer>> positionEntries(List<String> lines) {
 		Map<Integer, Entry<Integer, Integer>> map = new HashMap<>();
 		for (String line : lines) {
 			Integer[] values = Stream.of(line.split("\\s+")).map(Integer::parseInt)
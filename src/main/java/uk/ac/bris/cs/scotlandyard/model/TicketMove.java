@@ -3,12 +3,14 @@ package uk.ac.bris.cs.scotlandyard.model;
 import java.util.Objects;
 
 /**
- * Represents a ticket move in the Scotland Yard game
+ * Represents a ticket move in the Scotland Yard game, see {@link Moves} for
+ * interned instances
  */
 public class TicketMove extends Move {
 
 	private final Ticket ticket;
 	private final int destination;
+	private final int hash;
 
 	/**
 	 * Create a new ticket move with ticket and destination
@@ -21,6 +23,7 @@ public class TicketMove extends Move {
 		super(colour);
 		this.destination = destination;
 		this.ticket = ticket;
+		this.hash = Objects.hash(super.hashCode(), ticket, destination);
 	}
 
 	/**
@@ -46,14 +49,14 @@ public class TicketMove extends Move {
 	public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
-		if(!super.equals(o)) return false;
 		TicketMove that = (TicketMove) o;
-		return destination == that.destination && ticket == that.ticket;
+		return hash == that.hash && destination == that.destination && ticket == that.ticket
+				&& colour() == that.colour();
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(super.hashCode(), ticket, destination);
+		return hash;
 	}
 
 	@Override
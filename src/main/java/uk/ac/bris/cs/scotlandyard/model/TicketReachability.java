@@ -0,0 +1,235 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.IntGraph;
+
+/**
+ * The least number of moves a detective needs between two nodes when it only
+ * has a limited number of taxi, bus and underground tickets, as opposed to
+ * {@link DistanceOracle} which ignores tickets. The result never undercounts,
+ * so it is an exact bound for pruning searches.
+ *
+ * <br>
+ * A query runs one breadth first search over (node, remaining tickets) states
+ * from the source, pruning states that have no more tickets of any kind than
+ * a state already seen at the same node. The resulting row of distances to
+ * every node is memoised in a table of the source indexed by the ticket
+ * counts, each capped at {@link #CAP}; the table of a source is only
+ * allocated on the first query from it. Since the table is keyed by the counts
+ * themselves nothing has to be invalidated when a wallet changes, querying
+ * with the current counts (for example through
+ * {@link #distance(ScotlandYardView, Colour, int)}) is always up to date.
+ *
+ * <br>
+ * A capped answer is exact when no count was capped or the answer is at most
+ * {@link #CAP} moves, as such a path cannot use more than {@link #CAP}
+ * tickets of a kind; otherwise the query falls back to a search with the
+ * actual counts that is not memoised. Instances are thread safe and should be
+ * shared between games on the same graph.
+ */
+public final class TicketReachability {
+
+	/**
+	 * The distance between nodes that cannot be connected with the tickets
+	 */
+	public static final int UNREACHABLE = -1;
+
+	/**
+	 * The largest ticket count of each kind used as a key of the memo table
+	 */
+	public static final int CAP = 15;
+
+	private static final int COUNT_BITS = 16;
+	private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+	private static final long REMAINING_MASK = (1L << 3 * COUNT_BITS) - 1;
+	private static final int ROWS = (CAP + 1) * (CAP + 1) * (CAP + 1);
+
+	// the position of the count of each transport in a state, -1 for boats
+	private static final int[] SHIFTS = new int[Transport.values().length];
+
+	static {
+		Arrays.fill(SHIFTS, -1);
+		SHIFTS[Transport.Taxi.ordinal()] = 2 * COUNT_BITS;
+		SHIFTS[Transport.Bus.ordinal()] = COUNT_BITS;
+		SHIFTS[Transport.Underground.ordinal()] = 0;
+	}
+
+	private final IntGraph<Transport> graph;
+	private final int size;
+	// the rows of each source indexed by the capped ticket counts
+	private final AtomicReferenceArray<AtomicReferenceArray<byte[]>> rows;
+
+	/**
+	 * @param graph the graph; not null, with non-negative node values below
+	 *        65536
+	 */
+	public TicketReachability(Graph<Integer, Transport> graph) {
+		this.graph = IntGraph.copyOf(requireNonNull(graph), Transport.class);
+		this.size = this.graph.maxNode() + 1;
+		if (size > 1 << COUNT_BITS)
+			throw new IllegalArgumentException("Graph has too many nodes for ticket reachability");
+		this.rows = new AtomicReferenceArray<>(size);
+	}
+
+	/**
+	 * The least number of moves between two nodes with a number of tickets
+	 *
+	 * @param from the start node, between 0 and {@link #maxNode()}
+	 * @param to the end node, between 0 and {@link #maxNode()}
+	 * @param taxi the number of taxi tickets; not negative
+	 * @param bus the number of bus tickets; not negative
+	 * @param underground the number of underground tickets; not negative
+	 * @return the distance, or {@link #UNREACHABLE}
+	 */
+	public int distance(int from, int to, int taxi, int bus, int underground) {
+		if (taxi < 0 || bus < 0 || underground < 0)
+			throw new IllegalArgumentException("Ticket counts cannot be negative");
+		if (from < 0 || from >= size || to < 0 || to >= size)
+			throw new IllegalArgumentException("Node not in graph");
+		int distance = row(from, Math.min(taxi, CAP), Math.min(bus, CAP),
+				Math.min(underground, CAP))[to];
+		boolean capped = taxi > CAP || bus > CAP || underground > CAP;
+		if (capped && (distance == UNREACHABLE || distance > CAP))
+			return search(from, taxi, bus, underground)[to];
+		return distance;
+	}
+
+	/**
+	 * The least number of moves between two nodes with the tickets of a
+	 * wallet, see {@link #distance(int, int, int, int, int)}
+	 *
+	 * @param tickets the ticket counts indexed by {@link Ticket#ordinal()};
+	 *        not null, only taxi, bus and underground are used
+	 */
+	public int distance(int from, int to, int[] tickets) {
+		return distance(from, to, tickets[Ticket.Taxi.ordinal()], tickets[Ticket.Bus.ordinal()],
+				tickets[Ticket.Underground.ordinal()]);
+	}
+
+	/**
+	 * The least number of moves a detective needs from its current location to
+	 * a node with its current tickets
+	 *
+	 * @param view the view of the game; not null
+	 * @param detective the colour of the detective; not null and not MrX
+	 * @param to the end node, between 0 and {@link #maxNode()}
+	 * @return the distance, or {@link #UNREACHABLE}
+	 */
+	public int distance(ScotlandYardView view, Colour detective, int to) {
+		requireNonNull(view);
+		if (requireNonNull(detective).isMrX())
+			throw new IllegalArgumentException("MrX can use secret tickets, use DistanceOracle");
+		int[] tickets = new int[Ticket.values().length];
+		view.getPlayerTickets(detective, tickets);
+		return distance(view.getPlayerLocation(detective), to, tickets);
+	}
+
+	/**
+	 * @return the largest node value of the graph
+	 */
+	public int maxNode() {
+		return size - 1;
+	}
+
+	private byte[] row(int from, int taxi, int bus, int underground) {
+		AtomicReferenceArray<byte[]> source = rows.get(from);
+		if (source == null) {
+			source = new AtomicReferenceArray<>(ROWS);
+			if (!rows.compareAndSet(from, null, source)) source = rows.get(from);
+		}
+		int key = (taxi * (CAP + 1) + bus) * (CAP + 1) + underground;
+		byte[] row = source.get(key);
+		if (row == null) {
+			// racing threads compute the same row, any one of them may win
+			row = search(from, taxi, bus, underground);
+			if (!source.compareAndSet(key, null, row)) row = source.get(key);
+		}
+		return row;
+	}
+
+	// a state is the node in the high bits and the remaining taxi, bus and
+	// underground tickets in the low ones
+	private static long state(int node, long remaining) {
+		return (long) node << 3 * COUNT_BITS | remaining;
+	}
+
+	// whether remaining tickets a are at least those of b in every kind
+	private static boolean covers(long a, long b) {
+		for (int shift = 0; shift < 3 * COUNT_BITS; shift += COUNT_BITS)
+			if ((a >>> shift & COUNT_MASK) < (b >>> shift & COUNT_MASK)) return false;
+		return true;
+	}
+
+	// breadth first search over (node, remaining tickets) from one source
+	private byte[] search(int from, int taxi, int bus, int underground) {
+		byte[] row = new byte[size];
+		Arrays.fill(row, (byte) UNREACHABLE);
+		if (!graph.containsNode(from)) return row;
+		// a shortest path never visits a node twice so never uses more
+		// tickets than there are nodes
+		long limit = size - 1;
+		long start = Math.min(taxi, limit) << 2 * COUNT_BITS | Math.min(bus, limit) << COUNT_BITS
+				| Math.min(underground, limit);
+
+		long[][] labels = new long[size][];
+		int[] labelCount = new int[size];
+		labels[from] = new long[] { start };
+		labelCount[from] = 1;
+		row[from] = 0;
+		int reached = 1;
+
+		long[] frontier = { state(from, start) };
+		int frontierSize = 1;
+		long[] next = new long[16];
+		for (int depth = 1; frontierSize > 0 && reached < graph.size(); depth++) {
+			int nextSize = 0;
+			for (int i = 0; i < frontierSize; i++) {
+				long current = frontier[i];
+				int node = (int) (current >>> 3 * COUNT_BITS);
+				for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++) {
+					int shift = SHIFTS[graph.data(edge)];
+					if (shift < 0 || (current >>> shift & COUNT_MASK) == 0) continue;
+					int target = graph.target(edge);
+					long remaining = (current & REMAINING_MASK) - (1L << shift);
+					if (!addLabel(labels, labelCount, target, remaining)) continue;
+					if (row[target] == UNREACHABLE) {
+						if (depth > Byte.MAX_VALUE)
+							throw new IllegalArgumentException("Path from " + from + " is too long");
+						row[target] = (byte) depth;
+						reached++;
+					}
+					if (nextSize == next.length) next = Arrays.copyOf(next, nextSize * 2);
+					next[nextSize++] = state(target, remaining);
+				}
+			}
+			long[] swap = frontier;
+			frontier = next;
+			next = swap;
+			frontierSize = nextSize;
+		}
+		return row;
+	}
+
+	// adds remaining tickets to those seen at a node unless already covered,
+	// dropping the ones it covers
+	private static boolean addLabel(long[][] labels, int[] labelCount, int node, long remaining) {
+		long[] seen = labels[node];
+		int count = labelCount[node];
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (covers(seen[i], remaining)) return false;
+			if (!covers(remaining, seen[i])) seen[kept++] = seen[i];
+		}
+		if (seen == null) seen = labels[node] = new long[4];
+		else if (kept == seen.length) seen = labels[node] = Arrays.copyOf(seen, kept * 2);
+		seen[kept++] = remaining;
+		labelCount[node] = kept;
+		return true;
+	}
+
+}
@@ -0,0 +1,162 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Objects.requireNonNull;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * An immutable copy of a {@link ScotlandYardView} at one point in time, see
+ * {@link ScotlandYardView#snapshot()}. Locations and ticket counts are copied
+ * into primitive arrays, the player list, rounds and graph are already
+ * immutable and are shared with the view. Snapshots can be read from any
+ * thread without locking while the game carries on.
+ *
+ * <br>
+ * Colours that are not playing are answered like {@link ScotlandYardModel}
+ * answers them: MrX's last known location and -1 tickets.
+ */
+public final class ViewSnapshot implements ScotlandYardView {
+
+	private static final int TICKETS = Ticket.values().length;
+	private static final int COLOURS = Colour.values().length;
+
+	private final List<Colour> players;
+	private final Set<Colour> winners;
+	private final int[] locations;
+	private final int[] tickets;
+	private final boolean gameOver;
+	private final Colour currentPlayer;
+	private final int currentRound;
+	private final List<Boolean> rounds;
+	private final Graph<Integer, Transport> graph;
+	private final long zobristKey;
+
+	private ViewSnapshot(ScotlandYardView view) {
+		this.players = view.getPlayers();
+		Set<Colour> winners = view.getWinningPlayers();
+		this.winners = winners.isEmpty() ? Collections.emptySet()
+				: Collections.unmodifiableSet(EnumSet.copyOf(winners));
+		this.locations = new int[COLOURS];
+		this.tickets = new int[COLOURS * TICKETS];
+		int mrX = view.getPlayerLocation(Black);
+		Arrays.fill(locations, mrX);
+		Arrays.fill(tickets, -1);
+		int[] detectives = new int[players.size() - 1];
+		view.getDetectiveLocations(detectives);
+		int[] counts = new int[TICKETS];
+		for (int i = 0; i < players.size(); i++) {
+			Colour colour = players.get(i);
+			if (i > 0) locations[colour.ordinal()] = detectives[i - 1];
+			view.getPlayerTickets(colour, counts);
+			System.arraycopy(counts, 0, tickets, colour.ordinal() * TICKETS, TICKETS);
+		}
+		this.gameOver = view.isGameOver();
+		this.currentPlayer = view.getCurrentPlayer();
+		this.currentRound = view.getCurrentRound();
+		this.rounds = view.getRounds();
+		this.graph = view.getGraph();
+		this.zobristKey = view.getZobristKey();
+	}
+
+	/**
+	 * Copies a view
+	 *
+	 * @param view the view; not null
+	 * @return the snapshot, the view itself if it is already a snapshot;
+	 *         never null
+	 */
+	public static ViewSnapshot of(ScotlandYardView view) {
+		requireNonNull(view);
+		return view instanceof ViewSnapshot ? (ViewSnapshot) view : new ViewSnapshot(view);
+	}
+
+	@Override
+	public List<Colour> getPlayers() {
+		return players;
+	}
+
+	@Override
+	public Set<Colour> getWinningPlayers() {
+		return winners;
+	}
+
+	@Override
+	public int getPlayerLocation(Colour colour) {
+		return locations[colour.ordinal()];
+	}
+
+	@Override
+	public int getPlayerTickets(Colour colour, Ticket ticket) {
+		return tickets[colour.ordinal() * TICKETS + ticket.ordinal()];
+	}
+
+	@Override
+	public int getDetectiveLocations(int[] out) {
+		for (int i = 1; i < players.size(); i++)
+			out[i - 1] = locations[players.get(i).ordinal()];
+		return players.size() - 1;
+	}
+
+	@Override
+	public void getPlayerTickets(Colour colour, int[] out) {
+		System.arraycopy(tickets, colour.ordinal() * TICKETS, out, 0, TICKETS);
+	}
+
+	@Override
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+	@Override
+	public Colour getCurrentPlayer() {
+		return currentPlayer;
+	}
+
+	@Override
+	public int getCurrentRound() {
+		return currentRound;
+	}
+
+	@Override
+	public boolean isRevealRound() {
+		return rounds.get(currentRound);
+	}
+
+	@Override
+	public List<Boolean> getRounds() {
+		return rounds;
+	}
+
+	@Override
+	public Graph<Integer, Transport> getGraph() {
+		return graph;
+	}
+
+	@Override
+	public long getZobristKey() {
+		return zobristKey;
+	}
+
+	@Override
+	public ViewSnapshot snapshot() {
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("ViewSnapshot{");
+		sb.append("round=").append(currentRound);
+		sb.append(", current=").append(currentPlayer);
+		sb.append(", gameOver=").append(gameOver);
+		sb.append('}');
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,126 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+
+/**
+ * Zobrist keys for Scotland Yard positions. A position key is the XOR of one
+ * random 64-bit key per feature of the position, so it can be updated
+ * incrementally by XOR-ing out the key of the old value of a feature and
+ * XOR-ing in the key of the new one.
+ *
+ * <br>
+ * The features are the location of every player as seen through a
+ * {@link ScotlandYardView}, that is MrX's last known location, the ticket
+ * counts of every player, the current round and the current player. Engines
+ * that know where MrX really is add {@link #mrXLocation(int)} on top.
+ *
+ * <br>
+ * Keys are derived from the feature with a fixed mixing function instead of
+ * being read from tables, so any node number works and keys are stable
+ * between runs.
+ */
+public final class Zobrist {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private static final long LOCATION = 1L << 56;
+	private static final long TICKET = 2L << 56;
+	private static final long ROUND = 3L << 56;
+	private static final long CURRENT_PLAYER = 4L << 56;
+	private static final long MRX_LOCATION = 5L << 56;
+
+	private Zobrist() {}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @param location the location of the player, MrX's last known location
+	 *        for MrX
+	 * @return the key of the player being at the location
+	 */
+	public static long location(Colour colour, int location) {
+		return mix(LOCATION | (long) colour.ordinal() << 32 | location & 0xffffffffL);
+	}
+
+	/**
+	 * @param colour the colour of the player; not null
+	 * @param ticket the ticket; not null
+	 * @param count the number of tickets the player has
+	 * @return the key of the player having the number of tickets
+	 */
+	public static long tickets(Colour colour, Ticket ticket, int count) {
+		return mix(TICKET | (long) colour.ordinal() << 40 | (long) ticket.ordinal() << 32
+				| count & 0xffffffffL);
+	}
+
+	/**
+	 * @param round the current round
+	 * @return the key of the round
+	 */
+	public static long round(int round) {
+		return mix(ROUND | round & 0xffffffffL);
+	}
+
+	/**
+	 * @param colour the current player; not null
+	 * @return the key of the player being the current player
+	 */
+	public static long currentPlayer(Colour colour) {
+		return mix(CURRENT_PLAYER | colour.ordinal());
+	}
+
+	/**
+	 * @param location MrX's actual location
+	 * @return the key of MrX being at the location, only part of keys of
+	 *         engines that know MrX's location
+	 */
+	public static long mrXLocation(int location) {
+		return mix(MRX_LOCATION | location & 0xffffffffL);
+	}
+
+	/**
+	 * Computes the key of a view from scratch
+	 *
+	 * @param view the view; not null
+	 * @return the key
+	 */
+	public static long of(ScotlandYardView view) {
+		long key = round(view.getCurrentRound()) ^ currentPlayer(view.getCurrentPlayer());
+		for (Colour colour : view.getPlayers()) {
+			key ^= location(colour, view.getPlayerLocation(colour));
+			for (Ticket ticket : TICKETS)
+				key ^= tickets(colour, ticket, view.getPlayerTickets(colour, ticket));
+		}
+		return key;
+	}
+
+	/**
+	 * Computes the key of an engine position from scratch
+	 *
+	 * @param colours the players, MrX first
+	 * @param locations the actual locations indexed like {@code colours}
+	 * @param tickets the ticket counts indexed like {@code colours} then by
+	 *        {@link Ticket#ordinal()}
+	 * @param round the current round
+	 * @param current the index of the current player
+	 * @param lastKnownLocation MrX's last known location
+	 * @return the key
+	 */
+	static long of(Colour[] colours, int[] locations, int[][] tickets, int round, int current,
+			int lastKnownLocation) {
+		long key = round(round) ^ currentPlayer(colours[current]) ^ mrXLocation(locations[0]);
+		for (int i = 0; i < colours.length; i++) {
+			key ^= location(colours[i], colours[i] == Black ? lastKnownLocation : locations[i]);
+			for (Ticket ticket : TICKETS)
+				key ^= tickets(colours[i], ticket, tickets[i][ticket.ordinal()]);
+		}
+		return key;
+	}
+
+	// the finaliser of SplitMix64
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -5,11 +5,10 @@ import static javafx.util.Duration.millis;
 import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -63,6 +62,7 @@ import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.ai.AI;
 import uk.ac.bris.cs.scotlandyard.model.Colour;
+import uk.ac.bris.cs.scotlandyard.model.Seeds;
 import uk.ac.bris.cs.scotlandyard.model.StandardGame;
 import uk.ac.bris.cs.scotlandyard.model.Ticket;
 import uk.ac.bris.cs.scotlandyard.ui.MapPreviewPane;
@@ -106,6 +106,11 @@ public final class GameSetup implements Controller {
 	private ObservableList<PlayerProperty> playerEntries = FXCollections
 			.observableArrayList(v -> new Observable[] { v.enabledProperty(), });
 	private final SimpleBooleanProperty ready = new SimpleBooleanProperty();
+	// random locations of the n-th game configured come from game n of the run
+	// seed, set the scotlandyard.seed property to replay a run
+	private final long runSeed = Long.getLong("scotlandyard.seed",
+			new SplittableRandom().nextLong());
+	private int games;
 	private final List<AI> availableAIs;
 	private final EnumSet<Features> features;
 
@@ -301,15 +306,19 @@ public final class GameSetup implements Controller {
 				.map(PlayerProperty::location).collect(Collectors.toSet());
 
 		// fill in all the random locations
+		SplittableRandom random = Seeds.random(Seeds.game(runSeed, games));
+		// only worth reproducing if a player of the game was placed randomly
+		if (playerEntries.stream().anyMatch(p -> p.enabled() && p.randomLocation()))
+			System.out.println("Random locations of game " + games + " of run seed " + runSeed);
+		games++;
 		ArrayList<Integer> availableLocation = new ArrayList<>(StandardGame.DETECTIVE_LOCATIONS);
 		availableLocation.removeAll(locationSelected);
-		Collections.shuffle(availableLocation);
+		Seeds.shuffle(availableLocation, random);
 		ArrayDeque<Integer> deque = new ArrayDeque<>(availableLocation);
 		playerEntries.forEach(p -> p.locationProperty().unbind());
 		playerEntries.filtered(PlayerProperty::randomLocation).forEach(p -> {
 			if (p.mrX()) {
-				p.locationProperty().set(StandardGame.MRX_LOCATIONS
-						.get(new Random().nextInt(StandardGame.MRX_LOCATIONS.size())));
+				p.locationProperty().set(StandardGame.generateMrXLocation(random));
 			} else {
 				p.locationProperty().set(deque.pop());
 			}
@@ -0,0 +1,102 @@
+package uk.ac.bris.cs.gamekit.graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGraphReader;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Tests for {@link IntGraph}
+ */
+public class IntGraphTest {
+
+	private static Graph<Integer, Transport> gameGraph;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		gameGraph = ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(IntGraphTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	@Test
+	public void testCopyEqualsGraph() {
+		Graph<Integer, Transport> graph = gameGraph;
+		IntGraph<Transport> copy = IntGraph.copyOf(graph, Transport.class);
+		assertThat(copy).isEqualTo(graph);
+		assertThat(copy.size()).isEqualTo(graph.size());
+		assertThat(copy.edgeCount()).isEqualTo(graph.getEdges().size());
+		assertThat(IntGraph.copyOf(copy, Transport.class)).isSameAs(copy);
+	}
+
+	@Test
+	public void testNeighboursMatchGraph() {
+		Graph<Integer, Transport> graph = gameGraph;
+		IntGraph<Transport> copy = IntGraph.copyOf(graph, Transport.class);
+		for (Node<Integer> node : graph.getNodes()) {
+			List<String> expected = new ArrayList<>();
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node))
+				expected.add(edge.destination().value() + " " + edge.data());
+			List<String> actual = new ArrayList<>();
+			copy.forEachNeighbour(node.value(), (destination, data) -> actual
+					.add(destination + " " + Transport.values()[data]));
+			assertThat(actual).containsOnlyElementsOf(expected).hasSameSizeAs(expected);
+			assertThat(new HashSet<>(copy.getEdgesFrom(node)))
+					.isEqualTo(new HashSet<>(graph.getEdgesFrom(node)));
+			assertThat(copy.degree(node.value())).isEqualTo(expected.size());
+		}
+	}
+
+	@Test
+	public void testEdgesTo() {
+		IntGraph<Transport> graph = IntGraph.copyOf(
+				ScotlandYardGraphReader.fromLines(Arrays.asList("3 2", "1", "2", "3", "1 2 Boat",
+						"3 2 Taxi")),
+				Transport.class);
+		Set<Integer> sources = new HashSet<>();
+		for (Edge<Integer, Transport> edge : graph.getEdgesTo(graph.getNode(2)))
+			sources.add(edge.source().value());
+		assertThat(sources).containsOnly(1, 3);
+		assertThat(graph.degree(2)).isEqualTo(2);
+		assertThat(graph.degree(42)).isZero();
+		assertThat(graph.getNode(42)).isNull();
+		assertThat(graph.maxNode()).isEqualTo(3);
+	}
+
+	@Test
+	public void testOfArrays() {
+		IntGraph<Transport> graph = IntGraph.of(Transport.class, new int[] { 3, 1 },
+				new int[] { 0, 0, 1, 1, 2 }, new int[] { 3, 1 },
+				new byte[] { (byte) Transport.Boat.ordinal(), (byte) Transport.Taxi.ordinal() });
+		assertThat(graph.getNodes()).extracting(Node::value).containsExactly(3, 1);
+		List<Edge<Integer, Transport>> expected = new ArrayList<>();
+		expected.add(new Edge<>(new Node<>(1), new Node<>(3), Transport.Boat));
+		expected.add(new Edge<>(new Node<>(3), new Node<>(1), Transport.Taxi));
+		assertThat(graph.getEdges()).containsExactlyElementsOf(expected);
+		assertThat(graph.getEdgesTo(new Node<>(1))).hasSize(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOfArraysWithMissingTargetShouldThrow() {
+		IntGraph.of(Transport.class, new int[] { 1 }, new int[] { 0, 0, 1 }, new int[] { 2 },
+				new byte[] { 0 });
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAddNodeShouldThrow() {
+		IntGraph.copyOf(gameGraph, Transport.class).addNode(new Node<>(500));
+	}
+
+}
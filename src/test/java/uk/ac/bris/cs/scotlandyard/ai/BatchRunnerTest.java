@@ -0,0 +1,59 @@
+package uk.ac.bris.cs.scotlandyard.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.scotlandyard.ai.BatchRunner.Results;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYardGraphReader;
+import uk.ac.bris.cs.scotlandyard.model.StandardGame;
+import uk.ac.bris.cs.scotlandyard.model.Transport;
+
+/**
+ * Tests for {@link BatchRunner}
+ */
+public class BatchRunnerTest {
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		graph = ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(BatchRunnerTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	private static Results run(int parallelism, long runSeed) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return new BatchRunner(StandardGame.ROUNDS, graph, 3, pool).run(runSeed, 50,
+					RandomAI::new, RandomAI::new);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testResultsDoNotDependOnParallelism() {
+		Results sequential = run(1, 42);
+		Results parallel = run(4, 42);
+		assertThat(sequential.games()).isEqualTo(50);
+		assertThat(parallel.games()).isEqualTo(sequential.games());
+		assertThat(parallel.mrXWins()).isEqualTo(sequential.mrXWins());
+		assertThat(parallel.roundHistogram()).isEqualTo(sequential.roundHistogram());
+		assertThat(parallel.moves()).isEqualTo(sequential.moves());
+	}
+
+	@Test
+	public void testRunSeedChangesResults() {
+		assertThat(run(2, 1).moves()).isNotEqualTo(run(2, 2).moves());
+	}
+
+}
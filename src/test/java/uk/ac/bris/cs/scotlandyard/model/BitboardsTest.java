@@ -0,0 +1,68 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests the bitboard helpers used for move generation
+ */
+public class BitboardsTest {
+
+	@Test
+	public void testStandardMapFitsInFourWords() {
+		assertThat(Bitboards.wordsFor(199)).isEqualTo(4);
+	}
+
+	@Test
+	public void testSetClearAndContains() {
+		long[] board = new long[Bitboards.wordsFor(199)];
+		Bitboards.set(board, 64);
+		Bitboards.set(board, 199);
+		assertThat(Bitboards.contains(board, 64)).isTrue();
+		assertThat(Bitboards.contains(board, 199)).isTrue();
+		assertThat(Bitboards.cardinality(board)).isEqualTo(2);
+		Bitboards.clear(board, 64);
+		assertThat(Bitboards.contains(board, 64)).isFalse();
+		assertThat(Bitboards.cardinality(board)).isEqualTo(1);
+	}
+
+	@Test
+	public void testOutOfRangeNodesAreIgnored() {
+		long[] board = new long[1];
+		Bitboards.set(board, 500);
+		assertThat(Bitboards.isEmpty(board)).isTrue();
+		assertThat(Bitboards.contains(board, 500)).isFalse();
+	}
+
+	@Test
+	public void testAndNotAndIteration() {
+		long[] a = new long[4];
+		long[] b = new long[4];
+		long[] out = new long[4];
+		Bitboards.set(a, 1);
+		Bitboards.set(a, 63);
+		Bitboards.set(a, 128);
+		Bitboards.set(b, 63);
+		assertThat(Bitboards.andNot(a, b, out)).isTrue();
+		assertThat(Bitboards.nextSetBit(out, 0)).isEqualTo(1);
+		assertThat(Bitboards.nextSetBit(out, 2)).isEqualTo(128);
+		assertThat(Bitboards.nextSetBit(out, 129)).isEqualTo(-1);
+		assertThat(Bitboards.andNot(b, b, out)).isFalse();
+	}
+
+	@Test
+	public void testNeighbourTableMatchesGraph() {
+		NeighbourTable table = new NeighbourTable(ScotlandYardGraphReader.fromLines(Arrays.asList(
+				"4 3", "1", "8", "46", "108", "1 8 Taxi", "1 46 Underground", "46 108 Boat")));
+		assertThat(Bitboards.contains(table.neighbours(Transport.Taxi, 1), 8)).isTrue();
+		assertThat(Bitboards.contains(table.neighbours(Transport.Taxi, 1), 46)).isFalse();
+		assertThat(Bitboards.contains(table.neighbours(Transport.Underground, 1), 46)).isTrue();
+		assertThat(Bitboards.contains(table.neighbours(Transport.Taxi, 8), 1)).isTrue();
+		assertThat(Bitboards.contains(table.anyNeighbours(108), 46)).isTrue();
+		assertThat(Bitboards.isEmpty(table.anyNeighbours(1000))).isTrue();
+	}
+
+}
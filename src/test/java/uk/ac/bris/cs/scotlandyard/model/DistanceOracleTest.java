@@ -0,0 +1,128 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle.Network;
+
+/**
+ * Tests for {@link DistanceOracle}
+ */
+public class DistanceOracleTest extends ModelTestBase {
+
+	// a plain breadth first search over the graph objects
+	private static Map<Integer, Integer> distances(Graph<Integer, Transport> graph,
+			Network network, int source) {
+		Map<Integer, Integer> distances = new HashMap<>();
+		Deque<Integer> queue = new ArrayDeque<>();
+		distances.put(source, 0);
+		queue.add(source);
+		while (!queue.isEmpty()) {
+			Node<Integer> node = graph.getNode(queue.poll());
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(node)) {
+				int target = edge.destination().value();
+				if (network.transports().contains(edge.data()) && !distances.containsKey(target)) {
+					distances.put(target, distances.get(node.value()) + 1);
+					queue.add(target);
+				}
+			}
+		}
+		return distances;
+	}
+
+	@Test
+	public void testDistancesMatchBreadthFirstSearch() {
+		Graph<Integer, Transport> graph = defaultGraph();
+		DistanceOracle oracle = DistanceOracle.of(graph);
+		for (Network network : Network.values()) {
+			for (int source : new int[] { 1, 45, 94, 111, 199 }) {
+				Map<Integer, Integer> expected = distances(graph, network, source);
+				for (Node<Integer> node : graph.getNodes()) {
+					int to = node.value();
+					assertThat(oracle.distance(network, source, to)).as("%s %s->%s", network,
+							source, to).isEqualTo(expected.getOrDefault(to,
+									DistanceOracle.UNREACHABLE));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLargerNetworksAreNeverLonger() {
+		Graph<Integer, Transport> graph = defaultGraph();
+		DistanceOracle oracle = DistanceOracle.of(graph);
+		Network[] networks = Network.values();
+		for (Node<Integer> from : graph.getNodes()) {
+			for (Node<Integer> to : graph.getNodes()) {
+				assertThat(oracle.distance(from.value(), to.value()))
+						.isEqualTo(oracle.distance(to.value(), from.value()))
+						.isNotEqualTo(DistanceOracle.UNREACHABLE);
+				for (int i = 1; i < networks.length; i++) {
+					int smaller = oracle.distance(networks[i - 1], from.value(), to.value());
+					if (smaller != DistanceOracle.UNREACHABLE)
+						assertThat(oracle.distance(networks[i], from.value(), to.value()))
+								.isLessThanOrEqualTo(smaller);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBoatOnlyReachableWithAny() {
+		DistanceOracle oracle = DistanceOracle.of(ScotlandYardGraphReader
+				.fromLines(Arrays.asList("3 2", "1", "2", "3", "1 2 Boat", "2 3 Taxi")));
+		assertThat(oracle.distance(Network.Detective, 1, 2)).isEqualTo(DistanceOracle.UNREACHABLE);
+		assertThat(oracle.distance(Network.Any, 1, 3)).isEqualTo(2);
+		assertThat(oracle.distance(Network.Taxi, 3, 2)).isEqualTo(1);
+		assertThat(oracle.distance(Network.Taxi, 2, 2)).isZero();
+		assertThat(oracle.maxNode()).isEqualTo(3);
+	}
+
+	// nodes 1 to n connected in a line by taxi edges
+	private static Graph<Integer, Transport> line(int n) {
+		List<String> lines = new ArrayList<>();
+		lines.add(n + " " + (n - 1));
+		for (int node = 1; node <= n; node++)
+			lines.add("" + node);
+		for (int node = 1; node < n; node++)
+			lines.add(node + " " + (node + 1) + " Taxi");
+		return ScotlandYardGraphReader.fromLines(lines);
+	}
+
+	@Test
+	public void testLongestPathFitsTable() {
+		DistanceOracle oracle = DistanceOracle.of(line(Byte.MAX_VALUE + 1));
+		assertThat(oracle.distance(Network.Taxi, 1, Byte.MAX_VALUE + 1))
+				.isEqualTo(Byte.MAX_VALUE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPathTooLongShouldThrow() {
+		DistanceOracle.of(line(Byte.MAX_VALUE + 2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNodeOutOfRangeShouldThrow() {
+		DistanceOracle.of(ScotlandYardGraphReader
+				.fromLines(Arrays.asList("2 1", "1", "2", "1 2 Taxi"))).distance(1, 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGraphTooLargeForTableShouldThrow() {
+		DistanceOracle.of(ScotlandYardGraphReader
+				.fromLines(Arrays.asList("2 1", "1", "50000", "1 50000 Taxi")));
+	}
+
+}
@@ -0,0 +1,128 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Green;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.White;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Yellow;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GameStateCodec}
+ */
+public class GameStateCodecTest extends ModelTestBase {
+
+	private static NeighbourTable neighbours;
+
+	@BeforeClass
+	public static void createNeighbours() {
+		neighbours = new NeighbourTable(defaultGraph());
+	}
+
+	private static GameState initial() {
+		return GameState.initial(StandardGame.ROUNDS, neighbours, of(Black, 45), of(Blue, 94),
+				of(Green, 29), of(Red, 111), of(White, 13), of(Yellow, 26));
+	}
+
+	private static GameState roundTrip(GameState state) {
+		ByteBuffer buffer = ByteBuffer.allocate(GameStateCodec.encodedSize(state));
+		GameStateCodec.write(state, buffer);
+		assertThat(buffer.remaining()).isZero();
+		buffer.flip();
+		GameState read = GameStateCodec.read(buffer, neighbours);
+		assertThat(buffer.remaining()).isZero();
+		return read;
+	}
+
+	@Test
+	public void testEveryPositionOfRandomGamesRoundTrips() {
+		MoveBuffer moves = new MoveBuffer();
+		for (int seed = 0; seed < 10; seed++) {
+			SplittableRandom random = new SplittableRandom(seed);
+			GameState state = initial();
+			while (true) {
+				assertThat(roundTrip(state)).isEqualTo(state);
+				if (state.isGameOver()) break;
+				moves.clear();
+				state.generateMoves(moves);
+				state = state.advance(moves.get(random.nextInt(moves.size())));
+			}
+		}
+	}
+
+	@Test
+	public void testStandardPositionIsCompact() {
+		assertThat(GameStateCodec.encodedSize(initial())).isLessThan(48);
+	}
+
+	@Test
+	public void testLargeTicketCountsEscape() {
+		Map<Ticket, Integer> tickets = new EnumMap<>(Ticket.class);
+		tickets.put(Ticket.Taxi, 15);
+		tickets.put(Ticket.Bus, 300);
+		tickets.put(Ticket.Underground, 14);
+		tickets.put(Ticket.Double, 0);
+		tickets.put(Ticket.Secret, 1000000);
+		GameState state = GameState.initial(StandardGame.ROUNDS, neighbours,
+				new PlayerConfiguration.Builder(Black).using(mocked()).with(tickets).at(45).build(),
+				new PlayerConfiguration.Builder(Blue).using(mocked()).with(tickets).at(94).build());
+		GameState read = roundTrip(state);
+		assertThat(read).isEqualTo(state);
+		assertThat(read.tickets(Blue, Ticket.Secret)).isEqualTo(1000000);
+	}
+
+	@Test
+	public void testMovesRoundTrip() {
+		MoveBuffer moves = new MoveBuffer();
+		initial().generateMoves(moves);
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		GameStateCodec.writeMoves(moves, buffer);
+		buffer.flip();
+		MoveBuffer read = new MoveBuffer();
+		assertThat(GameStateCodec.readMoves(buffer, read)).isEqualTo(moves.size());
+		assertThat(read.size()).isEqualTo(moves.size());
+		for (int i = 0; i < moves.size(); i++)
+			assertThat(read.get(i)).isEqualTo(moves.get(i));
+	}
+
+	@Test
+	public void testVarintSizes() {
+		ByteBuffer buffer = ByteBuffer.allocate(5);
+		for (int value : new int[] { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE }) {
+			buffer.clear();
+			GameStateCodec.putVarint(buffer, value);
+			assertThat(buffer.position()).isEqualTo(GameStateCodec.varintSize(value));
+			buffer.flip();
+			assertThat(GameStateCodec.getVarint(buffer)).isEqualTo(value);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownVersionShouldThrow() {
+		GameStateCodec.read(ByteBuffer.wrap(new byte[] { 42 }), neighbours);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLocationOutsideGraphShouldThrow() {
+		GameState state = initial();
+		ByteBuffer buffer = ByteBuffer.allocate(GameStateCodec.encodedSize(state) + 8);
+		GameStateCodec.write(state, buffer);
+		buffer.flip();
+		// MrX's location is the first varint after the fixed header and
+		// lastKnownLocation, 45 is a single byte
+		int offset = 1 + 1 + 3 + 1 + 3 + 1 + 1 + 1;
+		assertThat(buffer.get(offset)).isEqualTo((byte) 45);
+		buffer.put(offset, (byte) 0);
+		GameStateCodec.read(buffer, neighbours);
+	}
+
+}
@@ -0,0 +1,91 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Secret;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Taxi;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GameState}
+ */
+public class GameStateTest {
+
+	private static NeighbourTable neighbours;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		neighbours = new NeighbourTable(ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(GameStateTest.class.getResource("/game_graph.txt").toURI()))));
+	}
+
+	private static GameState initial() {
+		return GameState.initial(StandardGame.ROUNDS, neighbours,
+				ModelTestBase.of(Black, 45), ModelTestBase.of(Blue, 94),
+				ModelTestBase.of(Red, 111));
+	}
+
+	@Test
+	public void testAdvanceDoesNotModifyParent() {
+		GameState parent = initial();
+		GameState child = parent.advance(new TicketMove(Black, Secret, 46));
+		assertThat(parent.location(Black)).isEqualTo(45);
+		assertThat(parent.tickets(Black, Secret)).isEqualTo(5);
+		assertThat(parent.currentPlayer()).isEqualTo(Black);
+		assertThat(child.location(Black)).isEqualTo(46);
+		assertThat(child.tickets(Black, Secret)).isEqualTo(4);
+		assertThat(child.currentPlayer()).isEqualTo(Blue);
+		assertThat(child.currentRound()).isEqualTo(1);
+	}
+
+	@Test
+	public void testDetectiveTicketGoesToMrX() {
+		GameState state = initial().advance(new TicketMove(Black, Taxi, 46))
+				.advance(new TicketMove(Blue, Taxi, 93));
+		assertThat(state.tickets(Blue, Taxi)).isEqualTo(10);
+		assertThat(state.tickets(Black, Taxi)).isEqualTo(4);
+		assertThat(state.tickets(Red, Taxi)).isEqualTo(11);
+	}
+
+	@Test
+	public void testStatesAgreeWithEngineForRandomGames() {
+		for (int seed = 0; seed < 20; seed++) {
+			Random random = new Random(seed);
+			GameState state = initial();
+			ScotlandYardEngine engine = state.toEngine();
+			MoveBuffer stateMoves = new MoveBuffer();
+			MoveBuffer engineMoves = new MoveBuffer();
+			while (!state.isGameOver()) {
+				stateMoves.clear();
+				engineMoves.clear();
+				state.generateMoves(stateMoves);
+				engine.generateMoves(engineMoves);
+				assertThat(stateMoves.toArray()).containsExactly(engineMoves.toArray());
+				int move = stateMoves.get(random.nextInt(stateMoves.size()));
+				state = state.advance(move);
+				engine.apply(move);
+				assertThat(state.toEngine().toString()).isEqualTo(engine.toString());
+			}
+			assertThat(engine.isGameOver()).isTrue();
+			assertThat(state.getWinningPlayers()).isEqualTo(engine.getWinningPlayers());
+		}
+	}
+
+	@Test
+	public void testEqualPositionsAreEqual() {
+		assertThat(initial()).isEqualTo(initial());
+		assertThat(initial().hashCode()).isEqualTo(initial().hashCode());
+		assertThat(initial().advance(new TicketMove(Black, Taxi, 46))).isNotEqualTo(initial());
+	}
+
+}
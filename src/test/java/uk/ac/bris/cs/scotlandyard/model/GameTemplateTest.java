@@ -0,0 +1,155 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * Tests for {@link GameTemplate}
+ */
+public class GameTemplateTest extends ModelTestBase {
+
+	private static GameTemplate template() {
+		return new GameTemplate(StandardGame.ROUNDS, defaultGraph(), of(Black, 45), of(Blue, 94),
+				of(Red, 111));
+	}
+
+	private static void assertSameStart(ScotlandYardView actual, ScotlandYardView expected) {
+		assertThat(actual.getPlayers()).isEqualTo(expected.getPlayers());
+		for (Colour colour : expected.getPlayers()) {
+			assertThat(actual.getPlayerLocation(colour))
+					.isEqualTo(expected.getPlayerLocation(colour));
+			for (Ticket ticket : Ticket.values())
+				assertThat(actual.getPlayerTickets(colour, ticket))
+						.isEqualTo(expected.getPlayerTickets(colour, ticket));
+		}
+		assertThat(actual.getCurrentPlayer()).isEqualTo(expected.getCurrentPlayer());
+		assertThat(actual.getCurrentRound()).isEqualTo(expected.getCurrentRound());
+		assertThat(actual.getRounds()).isEqualTo(expected.getRounds());
+		assertThat(actual.isGameOver()).isEqualTo(expected.isGameOver());
+		assertThat(actual.getZobristKey()).isEqualTo(expected.getZobristKey());
+	}
+
+	@Test
+	public void testNewGameMatchesModelConstructor() {
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				of(Black, 45), of(Blue, 94), of(Red, 111));
+		assertSameStart(template().newGame(), model);
+	}
+
+	@Test
+	public void testNewGameWithLocationsMatchesModelConstructor() {
+		Player player = mocked();
+		ScotlandYardModel game = template().newGame(colour -> player, 13, 26, 29);
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				of(Black, 13), of(Blue, 26), of(Red, 29));
+		assertSameStart(game, model);
+		assertThat(game.getDetectiveLocations(new int[2])).isEqualTo(2);
+	}
+
+	@Test
+	public void testGamesAreIndependent() {
+		GameTemplate template = template();
+		ScotlandYardModel first = template.newGame(colour -> (view, location, moves, callback) -> callback
+				.accept(moves.iterator().next()));
+		ScotlandYardModel second = template.newGame();
+		first.startRotate();
+		assertThat(first.getCurrentRound()).isEqualTo(1);
+		assertThat(second.getCurrentRound()).isZero();
+		assertSameStart(template.newGame(), second);
+	}
+
+	@Test
+	public void testGameOverAtStartIsPrecomputed() {
+		GameTemplate template = new GameTemplate(StandardGame.ROUNDS, defaultGraph(),
+				of(Black, 45), new PlayerConfiguration.Builder(Blue).using(mocked())
+						.with(noTickets()).at(94).build());
+		assertThat(template.newGame().isGameOver()).isTrue();
+		assertThat(template.newGame(colour -> mocked(), 13, 26).isGameOver()).isTrue();
+	}
+
+	// a small map with every transport whose nodes are numbered from offset
+	private static Graph<Integer, Transport> map(int offset) {
+		return ScotlandYardGraphReader.fromLines(Arrays.asList("5 5", "" + (offset + 1),
+				"" + (offset + 2), "" + (offset + 3), "" + (offset + 4), "" + (offset + 5),
+				(offset + 1) + " " + (offset + 2) + " Taxi", (offset + 2) + " " + (offset + 3) + " Bus",
+				(offset + 3) + " " + (offset + 4) + " Underground",
+				(offset + 1) + " " + (offset + 5) + " Boat", (offset + 2) + " " + (offset + 5) + " Taxi"));
+	}
+
+	private static Move shift(Move move, int offset) {
+		if (move instanceof TicketMove) {
+			TicketMove ticket = (TicketMove) move;
+			return new TicketMove(move.colour(), ticket.ticket(), ticket.destination() + offset);
+		}
+		if (move instanceof DoubleMove) {
+			DoubleMove dm = (DoubleMove) move;
+			return new DoubleMove(move.colour(), (TicketMove) shift(dm.firstMove(), offset),
+					(TicketMove) shift(dm.secondMove(), offset));
+		}
+		return move;
+	}
+
+	private static Set<Move> firstMoves(int offset) {
+		AtomicReference<Set<Move>> offered = new AtomicReference<>();
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, map(offset),
+				new PlayerConfiguration.Builder(Black).using((view, location, moves, callback) -> {
+					offered.set(new HashSet<>(moves));
+					callback.accept(moves.iterator().next());
+				}).with(mrXTickets()).at(offset + 2).build(),
+				new PlayerConfiguration.Builder(Blue).using(mocked()).with(detectiveTickets())
+						.at(offset + 4).build());
+		model.startRotate();
+		assertThat(model.getCurrentPlayer()).isEqualTo(Blue);
+		return offered.get();
+	}
+
+	@Test
+	public void testMapTooLargeToPackMatchesSmallMap() {
+		int offset = PackedMove.MAX_NODE + 1000;
+		Set<Move> small = firstMoves(0);
+		assertThat(small).isNotEmpty();
+		assertThat(firstMoves(offset)).isEqualTo(
+				small.stream().map(move -> shift(move, offset)).collect(Collectors.toSet()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateColoursShouldThrow() {
+		new GameTemplate(StandardGame.ROUNDS, defaultGraph(), of(Black, 45), of(Blue, 94),
+				of(Blue, 111));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateNewLocationsShouldThrow() {
+		template().newGame(colour -> mocked(), 13, 26, 13);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNewLocationNotInGraphShouldThrow() {
+		// nodes 11 to 15, so 5 is within the range of node values
+		new GameTemplate(StandardGame.ROUNDS, map(10), of(Black, 12), of(Blue, 14))
+				.newGame(colour -> mocked(), 5, 14);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongNumberOfLocationsShouldThrow() {
+		template().newGame(colour -> mocked(), 13, 26);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullPlayerShouldThrow() {
+		template().newGame(colour -> null);
+	}
+
+}
@@ -0,0 +1,194 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Green;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.White;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Yellow;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LockstepSimulator}
+ */
+public class LockstepSimulatorTest extends ModelTestBase {
+
+	private static final int PLAYERS = 6;
+
+	private static GameState initial(NeighbourTable neighbours) {
+		return GameState.initial(StandardGame.ROUNDS, neighbours, of(Black, 45), of(Blue, 94),
+				of(Green, 29), of(Red, 111), of(White, 13), of(Yellow, 26));
+	}
+
+	private static LockstepSimulator simulator(NeighbourTable neighbours, int games, long seed) {
+		LockstepSimulator simulator = new LockstepSimulator(StandardGame.ROUNDS, neighbours,
+				PLAYERS, games);
+		simulator.seed(seed);
+		simulator.loadAll(initial(neighbours));
+		return simulator;
+	}
+
+	@Test
+	public void testEveryPlyIsLegal() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		int games = 100;
+		LockstepSimulator simulator = simulator(neighbours, games, 1);
+		int player = 0;
+		int[] before = new int[games];
+		int[][] ticketsBefore = new int[games][Ticket.values().length];
+		boolean[] live = new boolean[games];
+		while (simulator.liveGames() > 0) {
+			for (int game = 0; game < games; game++) {
+				live[game] = !simulator.isGameOver(game);
+				before[game] = simulator.location(game, player);
+				for (Ticket ticket : Ticket.values())
+					ticketsBefore[game][ticket.ordinal()] = simulator.tickets(game, player, ticket);
+			}
+			simulator.step();
+			for (int game = 0; game < games; game++) {
+				if (!live[game]) continue;
+				int after = simulator.location(game, player);
+				if (after == before[game]) {
+					assertThat(player).as("only detectives pass").isNotZero();
+					continue;
+				}
+				Ticket used = null;
+				for (Ticket ticket : Ticket.values()) {
+					int spent = ticketsBefore[game][ticket.ordinal()]
+							- simulator.tickets(game, player, ticket);
+					if (spent == 1) used = ticket;
+					else assertThat(spent).isZero();
+				}
+				assertThat(used).isNotNull().isNotEqualTo(Ticket.Double);
+				long[] reachable = used == Ticket.Secret ? neighbours.anyNeighbours(before[game])
+						: neighbours.neighbours(Transport.valueOf(used.name()), before[game]);
+				assertThat(Bitboards.contains(reachable, after)).as("%s by %s", after, used).isTrue();
+				for (int detective = 1; detective < PLAYERS; detective++)
+					if (detective != player)
+						assertThat(simulator.location(game, detective)).isNotEqualTo(after);
+			}
+			player = (player + 1) % PLAYERS;
+		}
+		for (int game = 0; game < games; game++)
+			assertThat(simulator.round(game)).isBetween(1, StandardGame.ROUNDS.size());
+	}
+
+	@Test
+	public void testSameSeedPlaysSameGames() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		LockstepSimulator first = simulator(neighbours, 50, 7);
+		LockstepSimulator second = simulator(neighbours, 50, 7);
+		assertThat(first.run()).isEqualTo(second.run());
+		for (int game = 0; game < 50; game++) {
+			assertThat(first.isMrXWinner(game)).isEqualTo(second.isMrXWinner(game));
+			assertThat(first.round(game)).isEqualTo(second.round(game));
+			assertThat(first.location(game, 0)).isEqualTo(second.location(game, 0));
+		}
+	}
+
+	@Test
+	public void testStuckDetectivesLoseBeforeStarting() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		LockstepSimulator simulator = new LockstepSimulator(StandardGame.ROUNDS, neighbours, 2,
+				10);
+		simulator.loadAll(GameState.initial(StandardGame.ROUNDS, neighbours, of(Black, 45),
+				new PlayerConfiguration.Builder(Blue).using(mocked()).with(noTickets()).at(94)
+						.build()));
+		assertThat(simulator.liveGames()).isZero();
+		assertThat(simulator.run()).isZero();
+		assertThat(simulator.mrXWins()).isEqualTo(10);
+	}
+
+	@Test
+	public void testWinRateByStart() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		int starts = StandardGame.MRX_LOCATIONS.size();
+		LockstepSimulator simulator = simulator(neighbours, starts * 20, 3);
+		for (int game = 0; game < simulator.games(); game++)
+			simulator.setMrXLocation(game, StandardGame.MRX_LOCATIONS.get(game % starts));
+		simulator.run();
+		double[] rates = simulator.mrXWinRateByStart();
+		for (int node = 0; node < rates.length; node++) {
+			if (StandardGame.MRX_LOCATIONS.contains(node))
+				assertThat(rates[node]).isBetween(0.0, 1.0);
+			else
+				assertThat(rates[node]).isNaN();
+		}
+	}
+
+	@Test
+	public void testGamesNotLoadedAreNotCounted() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		LockstepSimulator simulator = new LockstepSimulator(StandardGame.ROUNDS, neighbours,
+				PLAYERS, 4);
+		assertThat(simulator.mrXWins()).isZero();
+		assertThat(simulator.mrXWinRateByStart()).containsOnly(Double.NaN);
+		simulator.load(1, initial(neighbours));
+		simulator.run();
+		assertThat(simulator.isGameOver(0)).isFalse();
+		assertThat(simulator.isGameOver(1)).isTrue();
+		assertThat(simulator.mrXWins()).isLessThanOrEqualTo(1);
+		double[] rates = simulator.mrXWinRateByStart();
+		for (int node = 0; node < rates.length; node++)
+			if (node != 45) assertThat(rates[node]).isNaN();
+		assertThat(rates[45]).isEqualTo(simulator.isMrXWinner(1) ? 1.0 : 0.0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testLoadMidRotationShouldThrow() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		LockstepSimulator simulator = simulator(neighbours, 2, 0);
+		simulator.step();
+		simulator.load(0, initial(neighbours));
+	}
+
+	@Test
+	public void testLoadAllMidRotationRestarts() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		LockstepSimulator simulator = simulator(neighbours, 2, 0);
+		simulator.step();
+		simulator.loadAll(initial(neighbours));
+		simulator.step();
+		assertThat(simulator.round(0)).isEqualTo(1);
+		assertThat(simulator.location(0, 1)).isEqualTo(94);
+	}
+
+	@Test
+	public void testGamesOverMidRotationCanBeLoaded() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		for (long seed = 0; seed < 20; seed++) {
+			LockstepSimulator simulator = simulator(neighbours, 1, seed);
+			simulator.run();
+			simulator.load(0, initial(neighbours));
+			simulator.setMrXLocation(0, 45);
+			assertThat(simulator.liveGames()).isEqualTo(1);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSetMrXLocationMidRotationShouldThrow() {
+		LockstepSimulator simulator = simulator(new NeighbourTable(defaultGraph()), 2, 0);
+		simulator.step();
+		simulator.setMrXLocation(0, 45);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSetMrXLocationOfGameNotLoadedShouldThrow() {
+		new LockstepSimulator(StandardGame.ROUNDS, new NeighbourTable(defaultGraph()), PLAYERS, 1)
+				.setMrXLocation(0, 45);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMrXOnDetectiveShouldThrow() {
+		simulator(new NeighbourTable(defaultGraph()), 1, 0).setMrXLocation(0, 94);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongPlayerCountShouldThrow() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		new LockstepSimulator(StandardGame.ROUNDS, neighbours, 3, 1).load(0, initial(neighbours));
+	}
+
+}
@@ -319,4 +319,31 @@ public class ModelCreationTest extends ModelTestBase {
 		assertTickets(game, Blue, 5, 4, 3, 0, 0);
 	}
 
+	@Test
+	public void testGetDetectiveLocationsFillsArrayInPlayOrder() {
+		ScotlandYardGame game = createGame(
+				asList(false, false, false),
+				defaultGraph(),
+				of(Black, 35),
+				of(Red, 26),
+				of(Blue, 50),
+				of(Green, 94));
+		int[] locations = new int[6];
+		assertThat(game.getDetectiveLocations(locations)).isEqualTo(3);
+		assertThat(locations).startsWith(26, 50, 94);
+	}
+
+	@Test
+	public void testGetPlayerTicketsFillsArrayByOrdinal() {
+		PlayerConfiguration mrX = new Builder(Black).using(mocked())
+				.with(makeTickets(1, 2, 3, 4, 5)).at(1).build();
+		PlayerConfiguration blue = new Builder(Blue).using(mocked())
+				.with(makeTickets(5, 4, 3, 0, 0)).at(2).build();
+		ScotlandYardGame game = createGame(mrX, blue);
+		int[] tickets = new int[Ticket.values().length];
+		game.getPlayerTickets(Blue, tickets);
+		for (Ticket ticket : Ticket.values())
+			assertThat(tickets[ticket.ordinal()]).isEqualTo(game.getPlayerTickets(Blue, ticket));
+	}
+
 }
@@ -4,6 +4,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
 import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
 import static uk.ac.bris.cs.scotlandyard.model.Colour.Green;
@@ -117,6 +120,47 @@ public class ModelGameOverTest extends ModelTestBase {
 		assertThat(game.isGameOver()).isTrue();
 	}
 
+	@Test
+	public void testWinningPlayersAreDetectivesIfMrXStuck() {
+		PlayerConfiguration black = new Builder(Black).using(mocked())
+				.with(makeTickets(1, 1, 1, 0, 0))
+				.at(86).build();
+		PlayerConfiguration blue = of(Blue, 108);
+		ScotlandYardGame game = createGame(black, blue);
+		doAnswer(tryChoose(ticket(Black, Taxi, 104)))
+				.when(black.player).makeMove(any(), anyInt(), any(), any());
+		doAnswer(tryChoose(ticket(Blue, Bus, 105)))
+				.when(blue.player).makeMove(any(), anyInt(), any(), any());
+		game.startRotate();
+		// MrX is stuck at the end of the rotation, the detectives win even
+		// though it is MrX's turn
+		assertThat(game.isGameOver()).isTrue();
+		assertThat(game.getCurrentPlayer()).isEqualTo(Black);
+		assertThat(game.getWinningPlayers()).containsOnly(Blue);
+	}
+
+	@Test
+	public void testGameOverNotifiedOnceIfMrXAndDetectivesStuck() {
+		PlayerConfiguration black = new Builder(Black).using(mocked())
+				.with(makeTickets(1, 1, 1, 0, 0))
+				.at(86).build();
+		// blue uses its only ticket and is stuck as well
+		PlayerConfiguration blue = new Builder(Blue).using(mocked())
+				.with(makeTickets(0, 1, 0, 0, 0))
+				.at(108).build();
+		ScotlandYardGame game = createGame(black, blue);
+		Spectator spectator = mock(Spectator.class);
+		game.registerSpectator(spectator);
+		doAnswer(tryChoose(ticket(Black, Taxi, 104)))
+				.when(black.player).makeMove(any(), anyInt(), any(), any());
+		doAnswer(tryChoose(ticket(Blue, Bus, 105)))
+				.when(blue.player).makeMove(any(), anyInt(), any(), any());
+		game.startRotate();
+		// MrX being stuck is checked first, so the detectives win
+		assertThat(game.getWinningPlayers()).containsOnly(Blue);
+		verify(spectator, times(1)).onGameOver(any(), any());
+	}
+
 	@Test
 	public void testGameNotOverIfMrXWasFreedBeforeNextRotation() {
 		PlayerConfiguration black = new Builder(Black).using(mocked())
@@ -182,6 +226,7 @@ public class ModelGameOverTest extends ModelTestBase {
 				.when(green.player).makeMove(any(), anyInt(), any(), any());
 		game.startRotate();
 		assertThat(game.isGameOver()).isTrue();
+		assertThat(game.getWinningPlayers()).containsOnly(Blue, Red, Green);
 	}
 
 	@Test
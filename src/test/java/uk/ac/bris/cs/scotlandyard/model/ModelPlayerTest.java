@@ -13,7 +13,12 @@ import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
 import static uk.ac.bris.cs.scotlandyard.model.Ticket.Bus;
 import static uk.ac.bris.cs.scotlandyard.model.Ticket.Taxi;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Test;
+import org.mockito.stubbing.Answer;
 
 import uk.ac.bris.cs.scotlandyard.model.PlayerConfiguration.Builder;
 
@@ -337,4 +342,34 @@ public class ModelPlayerTest extends ModelTestBase {
 		assertThat(game.getPlayerLocation(Black)).isEqualTo(0);
 	}
 
+	@Test
+	public void testSynchronousPlayersDoNotGrowTheStack() {
+		PlayerConfiguration mrX = new Builder(Black)
+				.using(mocked())
+				.with(makeTickets(100, 0, 0, 0, 0))
+				.at(45).build();
+		PlayerConfiguration blue = new Builder(Blue)
+				.using(mocked())
+				.with(makeTickets(100, 0, 0, 0, 0))
+				.at(174).build();
+		List<Integer> depths = new ArrayList<>();
+		Answer<Void> recordDepth = invocation -> {
+			depths.add(Thread.currentThread().getStackTrace().length);
+			return chooseFirst().answer(invocation);
+		};
+		doAnswer(recordDepth).when(mrX.player).makeMove(any(), anyInt(), anySet(), any());
+		doAnswer(recordDepth).when(blue.player).makeMove(any(), anyInt(), anySet(), any());
+		ScotlandYardGame game = createGame(Collections.nCopies(50, false), mrX, blue);
+		// like the UI, start the next rotation as soon as one is complete
+		game.registerSpectator(new Spectator() {
+			@Override
+			public void onRotationComplete(ScotlandYardView view) {
+				game.startRotate();
+			}
+		});
+		game.startRotate();
+		assertThat(depths).hasSize(100);
+		assertThat(depths.stream().distinct().count()).isEqualTo(1);
+	}
+
 }
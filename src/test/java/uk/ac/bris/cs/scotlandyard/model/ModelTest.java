@@ -15,5 +15,23 @@ import org.junit.runners.Suite;
 		ModelRoundTest.class,
 		ModelPlayerTest.class,
 		ModelValidMoveTest.class,
-		ModelSpectatorTest.class })
+		ModelSpectatorTest.class,
+		BitboardsTest.class,
+		PackedMoveTest.class,
+		ScotlandYardEngineTest.class,
+		GameStateTest.class,
+		SimulationEngineTest.class,
+		MovesTest.class,
+		SpectatorBusTest.class,
+		MrXLocationTrackerTest.class,
+		PerftTest.class,
+		SeedsTest.class,
+		GameStateCodecTest.class,
+		GameTemplateTest.class,
+		LockstepSimulatorTest.class,
+		ViewSnapshotTest.class,
+		DistanceOracleTest.class,
+		TicketReachabilityTest.class,
+		ScotlandYardMapConverterTest.class,
+		ScotlandYardGraphReaderTest.class })
 public class ModelTest {}
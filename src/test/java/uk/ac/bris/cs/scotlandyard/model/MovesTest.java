@@ -0,0 +1,47 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Bus;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Taxi;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Moves}
+ */
+public class MovesTest {
+
+	@Test
+	public void testTicketMovesAreInterned() {
+		assertThat(Moves.ticket(Black, Taxi, 42)).isSameAs(Moves.ticket(Black, Taxi, 42));
+		assertThat(Moves.ticket(Black, Taxi, 42)).isNotSameAs(Moves.ticket(Blue, Taxi, 42));
+		assertThat(Moves.ticket(Black, Taxi, 42)).isEqualTo(new TicketMove(Black, Taxi, 42));
+	}
+
+	@Test
+	public void testTicketMovesOutsideTableAreStillEqual() {
+		int node = Moves.MAX_INTERNED_NODE + 1;
+		assertThat(Moves.ticket(Black, Taxi, node)).isEqualTo(new TicketMove(Black, Taxi, node));
+		assertThat(Moves.ticket(Black, Taxi, -1).destination()).isEqualTo(-1);
+	}
+
+	@Test
+	public void testDoubleMovesAreCachedAndEqual() {
+		DoubleMove move = Moves.doubleMove(Black, Taxi, 1, Bus, 2);
+		assertThat(Moves.doubleMove(Black, Taxi, 1, Bus, 2)).isSameAs(move);
+		assertThat(move).isEqualTo(new DoubleMove(Black, Taxi, 1, Bus, 2));
+		assertThat(move.hashCode()).isEqualTo(new DoubleMove(Black, Taxi, 1, Bus, 2).hashCode());
+		assertThat(move.firstMove()).isSameAs(Moves.ticket(Black, Taxi, 1));
+	}
+
+	@Test
+	public void testCanonical() {
+		assertThat(Moves.canonical(new TicketMove(Black, Taxi, 7))).isSameAs(Moves.ticket(Black, Taxi, 7));
+		assertThat(Moves.canonical(new PassMove(Blue))).isSameAs(Moves.pass(Blue));
+		assertThat(Moves.canonical(new DoubleMove(Black, Taxi, 1, Bus, 2)))
+				.isEqualTo(new DoubleMove(Black, Taxi, 1, Bus, 2));
+	}
+
+}
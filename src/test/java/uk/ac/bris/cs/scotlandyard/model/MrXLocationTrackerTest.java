@@ -0,0 +1,108 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Green;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MrXLocationTracker}
+ */
+public class MrXLocationTrackerTest extends ModelTestBase {
+
+	/**
+	 * A random player that checks MrX's real location is always a candidate
+	 */
+	private static class CheckingPlayer implements Player {
+
+		private final Random random;
+		private final MrXLocationTracker tracker;
+		private int checks;
+
+		CheckingPlayer(long seed, MrXLocationTracker tracker) {
+			this.random = new Random(seed);
+			this.tracker = tracker;
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			if (view.getCurrentPlayer() == Black) {
+				assertThat(tracker.isCandidate(location)).as("%s in %s", location, tracker).isTrue();
+				int round = view.getCurrentRound() - 1;
+				if (round >= 0 && view.getRounds().get(round))
+					assertThat(tracker.candidates()).containsExactly(location);
+				checks++;
+			}
+			List<Move> sorted = new ArrayList<>(moves);
+			sorted.sort(Comparator.comparing(Move::toString));
+			callback.accept(sorted.get(random.nextInt(sorted.size())));
+		}
+	}
+
+	@Test
+	public void testMrXIsAlwaysACandidate() {
+		for (int seed = 0; seed < 20; seed++) {
+			MrXLocationTracker tracker = new MrXLocationTracker(
+					new NeighbourTable(defaultGraph()), StandardGame.MRX_LOCATIONS);
+			CheckingPlayer player = new CheckingPlayer(seed, tracker);
+			List<Integer> detectives = StandardGame.generateDetectiveLocations(seed, 3);
+			ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+					new PlayerConfiguration.Builder(Black).using(player).with(mrXTickets())
+							.at(StandardGame.generateMrXLocation(seed)).build(),
+					new PlayerConfiguration.Builder(Blue).using(player).with(detectiveTickets())
+							.at(detectives.get(0)).build(),
+					new PlayerConfiguration.Builder(Red).using(player).with(detectiveTickets())
+							.at(detectives.get(1)).build(),
+					new PlayerConfiguration.Builder(Green).using(player).with(detectiveTickets())
+							.at(detectives.get(2)).build());
+			model.registerSpectator(tracker);
+			while (!model.isGameOver())
+				model.startRotate();
+			assertThat(player.checks).isGreaterThan(0);
+		}
+	}
+
+	@Test
+	public void testHiddenMoveExpandsAlongTicketEdges() {
+		NeighbourTable neighbours = new NeighbourTable(defaultGraph());
+		MrXLocationTracker tracker = new MrXLocationTracker(neighbours, singletonList(45));
+		ScotlandYardView view = mock(ScotlandYardView.class);
+		when(view.getCurrentRound()).thenReturn(1);
+		when(view.getRounds()).thenReturn(StandardGame.ROUNDS);
+		when(view.getPlayers()).thenReturn(asList(Black, Blue));
+		when(view.getPlayerLocation(Blue)).thenReturn(46);
+		tracker.onMoveMade(view, new TicketMove(Black, Ticket.Taxi, 0));
+		long[] expected = neighbours.neighbours(Transport.Taxi, 45).clone();
+		Bitboards.clear(expected, 46);
+		assertThat(tracker.candidateBoard()).containsExactly(expected);
+		assertThat(tracker.isCandidate(46)).isFalse();
+	}
+
+	@Test
+	public void testDetectiveMoveRemovesCandidate() {
+		MrXLocationTracker tracker = new MrXLocationTracker(defaultGraph());
+		assertThat(tracker.candidateCount()).isEqualTo(199);
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				of(Black, 45), of(Blue, 94), of(Red, 111));
+		model.registerSpectator(tracker);
+		tracker.onMoveMade(model, new TicketMove(Blue, Ticket.Taxi, 46));
+		assertThat(tracker.isCandidate(46)).isFalse();
+		assertThat(tracker.candidateCount()).isEqualTo(198);
+	}
+
+}
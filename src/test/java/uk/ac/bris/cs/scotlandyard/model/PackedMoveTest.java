@@ -0,0 +1,63 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Yellow;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Secret;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Taxi;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Underground;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PackedMove} and {@link MoveBuffer}
+ */
+public class PackedMoveTest {
+
+	@Test
+	public void testTicketMoveRoundTrip() {
+		TicketMove move = new TicketMove(Yellow, Underground, 199);
+		int packed = PackedMove.fromMove(move);
+		assertThat(PackedMove.isPass(packed)).isFalse();
+		assertThat(PackedMove.isDouble(packed)).isFalse();
+		assertThat(PackedMove.finalDestination(packed)).isEqualTo(199);
+		assertThat(PackedMove.toMove(packed)).isEqualTo(move);
+	}
+
+	@Test
+	public void testDoubleMoveRoundTrip() {
+		DoubleMove move = new DoubleMove(Black, Secret, PackedMove.MAX_NODE, Taxi, 1);
+		int packed = PackedMove.fromMove(move);
+		assertThat(packed).isPositive();
+		assertThat(PackedMove.isDouble(packed)).isTrue();
+		assertThat(PackedMove.secondTicket(packed)).isEqualTo(Taxi);
+		assertThat(PackedMove.finalDestination(packed)).isEqualTo(1);
+		assertThat(PackedMove.toMove(packed)).isEqualTo(move);
+	}
+
+	@Test
+	public void testPassMoveRoundTrip() {
+		int packed = PackedMove.fromMove(new PassMove(Yellow));
+		assertThat(PackedMove.isPass(packed)).isTrue();
+		assertThat(PackedMove.toMove(packed)).isInstanceOf(PassMove.class);
+		assertThat(PackedMove.colour(packed)).isEqualTo(Yellow);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNodeTooLargeShouldThrow() {
+		PackedMove.ticket(Black, Taxi, PackedMove.MAX_NODE + 1);
+	}
+
+	@Test
+	public void testBufferGrowsAndConverts() {
+		MoveBuffer buffer = new MoveBuffer(1);
+		for (int i = 1; i <= 100; i++)
+			buffer.add(PackedMove.ticket(Black, Taxi, i));
+		assertThat(buffer.size()).isEqualTo(100);
+		assertThat(buffer.contains(PackedMove.ticket(Black, Taxi, 42))).isTrue();
+		assertThat(buffer.toMoves()).hasSize(100).contains(new TicketMove(Black, Taxi, 100));
+		buffer.clear();
+		assertThat(buffer.isEmpty()).isTrue();
+	}
+
+}
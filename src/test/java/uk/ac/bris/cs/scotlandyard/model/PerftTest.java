@@ -0,0 +1,62 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Perft}
+ */
+public class PerftTest extends ModelTestBase {
+
+	private static ScotlandYardEngine engine() {
+		return new ScotlandYardEngine(StandardGame.ROUNDS, defaultGraph(), of(Black, 45),
+				of(Blue, 94), of(Red, 111));
+	}
+
+	@Test
+	public void testDepthZeroIsOnePosition() {
+		assertThat(Perft.perft(engine(), 0)).isEqualTo(1);
+	}
+
+	@Test
+	public void testEngineAndGameStateAgree() {
+		ScotlandYardEngine engine = engine();
+		String start = engine.toString();
+		GameState state = GameState.initial(StandardGame.ROUNDS, defaultGraph(), of(Black, 45),
+				of(Blue, 94), of(Red, 111));
+		for (int depth = 1; depth <= 4; depth++)
+			assertThat(Perft.perft(engine, depth)).isEqualTo(Perft.perft(state, depth));
+		assertThat(engine.toString()).isEqualTo(start);
+		assertThat(engine.depth()).isZero();
+	}
+
+	@Test
+	public void testEngineDivideMatchesModel() {
+		Map<Move, Long> engine = Perft.divide(engine(), 3);
+		Map<Move, Long> model = Perft.divide(StandardGame.ROUNDS, defaultGraph(), 3,
+				of(Black, 45), of(Blue, 94), of(Red, 111));
+		assertThat(engine).isEqualTo(model);
+		assertThat(engine.values().stream().mapToLong(Long::longValue).sum())
+				.isEqualTo(Perft.perft(engine(), 3));
+	}
+
+	@Test
+	public void testBenchmarkReportsNodes() {
+		Perft.Result result = Perft.benchmark(engine(), 2);
+		assertThat(result.nodes()).isEqualTo(Perft.perft(engine(), 2));
+		assertThat(result.depth()).isEqualTo(2);
+		assertThat(result.nodesPerSecond()).isGreaterThanOrEqualTo(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeDepthShouldThrow() {
+		Perft.perft(engine(), -1);
+	}
+
+}
@@ -0,0 +1,181 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Green;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.White;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Yellow;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+
+/**
+ * Plays random games through {@link ScotlandYardModel} and checks that
+ * {@link ScotlandYardEngine} agrees on every move
+ */
+public class ScotlandYardEngineTest {
+
+	private static final Colour[] DETECTIVES = { Red, Green, Blue, White, Yellow };
+
+	private static Graph<Integer, Transport> graph;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		graph = ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(ScotlandYardEngineTest.class.getResource("/game_graph.txt").toURI())));
+	}
+
+	/**
+	 * A player that checks the engine against the moves given by the model
+	 * before picking a random move and applying it to both
+	 */
+	private static class CheckingPlayer implements Player {
+
+		private final Random random;
+		private ScotlandYardEngine engine;
+		private int moves;
+
+		CheckingPlayer(long seed) {
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			MoveBuffer buffer = new MoveBuffer();
+			engine.generateMoves(buffer);
+			Set<Move> expected = buffer.toMoves();
+			assertThat(expected).isEqualTo(moves);
+			// the model answers contains() from the rules instead of a lookup
+			for (Move move : expected)
+				assertThat(moves.contains(move)).as("contains %s", move).isTrue();
+			for (int i = 0; i < 50; i++) {
+				Ticket ticket = Ticket.values()[random.nextInt(Ticket.values().length)];
+				Move move = new TicketMove(view.getCurrentPlayer(), ticket, 1 + random.nextInt(199));
+				assertThat(moves.contains(move)).as("contains %s", move)
+						.isEqualTo(expected.contains(move));
+			}
+			for (Move move : expected) {
+				if (!(move instanceof DoubleMove)) continue;
+				DoubleMove x2 = (DoubleMove) move;
+				Move other = new DoubleMove(x2.colour(), x2.firstMove().ticket(),
+						x2.firstMove().destination(), x2.secondMove().ticket(),
+						x2.finalDestination() % 199 + 1);
+				assertThat(moves.contains(other)).as("contains %s", other)
+						.isEqualTo(expected.contains(other));
+			}
+			assertThat(engine.currentPlayer()).isEqualTo(view.getCurrentPlayer());
+			assertThat(engine.location(view.getCurrentPlayer())).isEqualTo(location);
+			assertThat(engine.lastKnownLocation()).isEqualTo(view.getPlayerLocation(Black));
+			assertThat(view.getZobristKey()).isEqualTo(Zobrist.of(view));
+			assertThat(engine.key())
+					.isEqualTo(view.getZobristKey() ^ Zobrist.mrXLocation(engine.location(Black)));
+			List<Move> sorted = new ArrayList<>(moves);
+			sorted.sort(Comparator.comparing(Move::toString));
+			Move move = sorted.get(random.nextInt(sorted.size()));
+			engine.apply(move);
+			this.moves++;
+			callback.accept(move);
+			assertThat(engine.currentRound()).isEqualTo(view.getCurrentRound());
+		}
+	}
+
+	private static List<PlayerConfiguration> configurations(Player player, int seed,
+			int detectives) {
+		List<PlayerConfiguration> configurations = new ArrayList<>();
+		configurations.add(new PlayerConfiguration.Builder(Black).using(player)
+				.with(ModelTestBase.mrXTickets())
+				.at(StandardGame.generateMrXLocation(seed)).build());
+		List<Integer> locations = StandardGame.generateDetectiveLocations(seed, detectives);
+		for (int i = 0; i < detectives; i++) {
+			configurations.add(new PlayerConfiguration.Builder(DETECTIVES[i]).using(player)
+					.with(ModelTestBase.makeTickets(4 + seed % 8, 3, 2, 0, 0))
+					.at(locations.get(i)).build());
+		}
+		return configurations;
+	}
+
+	private static PlayerConfiguration[] rest(List<PlayerConfiguration> configurations) {
+		return configurations.subList(2, configurations.size())
+				.toArray(new PlayerConfiguration[0]);
+	}
+
+	@Test
+	public void testEngineAgreesWithModelForRandomGames() {
+		for (int seed = 0; seed < 40; seed++) {
+			CheckingPlayer player = new CheckingPlayer(seed);
+			List<PlayerConfiguration> configurations = configurations(player, seed, 1 + seed % 5);
+			ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, graph,
+					configurations.get(0), configurations.get(1), rest(configurations));
+			player.engine = new ScotlandYardEngine(StandardGame.ROUNDS, graph,
+					configurations.get(0), configurations.get(1), rest(configurations));
+			while (!model.isGameOver())
+				model.startRotate();
+			assertThat(player.engine.isGameOver()).isTrue();
+			assertThat(player.engine.depth()).isEqualTo(player.moves);
+			assertThat(model.getWinningPlayers()).isEqualTo(player.engine.getWinningPlayers());
+		}
+	}
+
+	@Test
+	public void testMrXCorneredAfterRotationLosesInBoth() {
+		// MrX spends his only taxi ticket and is given the detective's bus
+		// ticket, which he cannot use at 2
+		Graph<Integer, Transport> map = ScotlandYardGraphReader.fromLines(Arrays.asList("5 3",
+				"1", "2", "3", "4", "5", "1 2 Taxi", "3 4 Bus", "4 5 Bus"));
+		CheckingPlayer player = new CheckingPlayer(0);
+		PlayerConfiguration mrX = new PlayerConfiguration.Builder(Black).using(player)
+				.with(ModelTestBase.makeTickets(1, 0, 0, 0, 0)).at(1).build();
+		PlayerConfiguration blue = new PlayerConfiguration.Builder(Blue).using(player)
+				.with(ModelTestBase.makeTickets(0, 5, 0, 0, 0)).at(3).build();
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, map, mrX, blue);
+		player.engine = new ScotlandYardEngine(StandardGame.ROUNDS, map, mrX, blue);
+		model.startRotate();
+		assertThat(model.isGameOver()).isTrue();
+		assertThat(model.getWinningPlayers()).containsOnly(Blue);
+		assertThat(player.engine.getWinningPlayers()).containsOnly(Blue);
+	}
+
+	@Test
+	public void testUndoRestoresStartingPosition() {
+		List<PlayerConfiguration> configurations = configurations(ModelTestBase.mocked(), 7, 5);
+		ScotlandYardEngine engine = new ScotlandYardEngine(StandardGame.ROUNDS, graph,
+				configurations.get(0), configurations.get(1), rest(configurations));
+		String start = engine.toString();
+		long key = engine.key();
+		Random random = new Random(7);
+		MoveBuffer buffer = new MoveBuffer();
+		while (!engine.isGameOver()) {
+			buffer.clear();
+			engine.generateMoves(buffer);
+			engine.apply(buffer.get(random.nextInt(buffer.size())));
+			assertThat(engine.key()).isEqualTo(engine.copy().key());
+		}
+		while (engine.depth() > 0)
+			engine.undo();
+		assertThat(engine.toString()).isEqualTo(start);
+		assertThat(engine.key()).isEqualTo(key);
+		for (PlayerConfiguration configuration : configurations) {
+			for (Ticket ticket : Ticket.values())
+				assertThat(engine.tickets(configuration.colour, ticket))
+						.isEqualTo(configuration.tickets.get(ticket));
+		}
+	}
+
+}
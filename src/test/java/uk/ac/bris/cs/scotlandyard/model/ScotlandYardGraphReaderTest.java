@@ -1,12 +1,27 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
 
@@ -15,6 +30,42 @@ import uk.ac.bris.cs.gamekit.graph.ImmutableGraph;
  */
 public class ScotlandYardGraphReaderTest {
 
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static ImmutableGraph<Integer, Transport> fromString(String text) throws IOException {
+		return ScotlandYardGraphReader
+				.fromStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	// both readers must throw the same message for the text
+	private static void assertSameError(String text) throws IOException {
+		String expected = null;
+		try {
+			ScotlandYardGraphReader.fromLines(new BufferedReader(new StringReader(text)).lines()
+					.collect(Collectors.toList()));
+		} catch (IllegalArgumentException e) {
+			expected = e.getMessage();
+		}
+		try {
+			fromString(text);
+			fail("Expected " + expected);
+		} catch (IllegalArgumentException e) {
+			assertEquals(expected, e.getMessage());
+		}
+	}
+
+	// a ring of nodes from 1 to n with transports in turn
+	private static List<String> ring(int n) {
+		List<String> lines = new ArrayList<>();
+		lines.add(n + " " + n);
+		for (int node = 1; node <= n; node++)
+			lines.add(String.valueOf(node));
+		for (int node = 1; node <= n; node++)
+			lines.add(node + " " + (node % n + 1) + " "
+					+ Transport.values()[node % Transport.values().length]);
+		return lines;
+	}
+
 	@Test
 	public void testValidFile() {
 		ImmutableGraph<Integer, Transport> graph = ScotlandYardGraphReader
@@ -26,6 +77,51 @@ public class ScotlandYardGraphReaderTest {
 		assertTrue(graph.getEdges().iterator().next().data() == Transport.Boat);
 	}
 
+	@Test
+	public void testStreamMatchesLines() throws IOException {
+		try (InputStream stream = StandardGame.class.getClassLoader()
+				.getResourceAsStream("graph.txt")) {
+			assertEquals(StandardGame.standardGraph(), ScotlandYardGraphReader.fromStream(stream));
+		}
+	}
+
+	@Test
+	public void testPathMatchesLines() throws IOException {
+		Path file = folder.newFile("graph.txt").toPath();
+		Files.write(file, "3 2 \r\n1\r\n2 \r\n3\r1 2 Boat\n3 2 Taxi  \nignored"
+				.getBytes(StandardCharsets.UTF_8));
+		assertEquals(
+				ScotlandYardGraphReader.fromLines(
+						Arrays.asList("3 2", "1", "2", "3", "1 2 Boat", "3 2 Taxi")),
+				ScotlandYardGraphReader.fromPath(file));
+	}
+
+	@Test
+	public void testLargeInputMatchesLines() throws IOException {
+		List<String> lines = ring(100_000);
+		String text = String.join("\n", lines);
+		assertTrue(text.length() > ScotlandYardGraphReader.PARALLEL_BYTES);
+		assertEquals(ScotlandYardGraphReader.fromLines(lines), fromString(text));
+	}
+
+	@Test
+	public void testErrorsMatchLines() throws IOException {
+		assertSameError("");
+		assertSameError("Foo Bar Baz");
+		assertSameError("3 1\n1\n2");
+		assertSameError("1 0\nFoo");
+		assertSameError("1 0\n\n");
+		assertSameError("1 0\n 1");
+		assertSameError("2 1\n1\n2\nFoo Bar Baz");
+		assertSameError("2 1\n1\n2\n1 2 Car");
+		assertSameError("2 1\n1\n2\n1 3 Taxi");
+		assertSameError("2 1\n1\n1\n1 2 Taxi");
+		List<String> lines = ring(100_000);
+		lines.set(150_000, "7 8 Rickshaw");
+		lines.set(190_000, "0 1 Taxi");
+		assertSameError(String.join("\r\n", lines));
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testEmptyInputShouldThrow() {
 		ScotlandYardGraphReader.fromLines(Collections.emptyList());
@@ -0,0 +1,95 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.IntGraph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+
+/**
+ * Tests for {@link ScotlandYardMapConverter} and
+ * {@link ScotlandYardGraphReader#fromMappedFile(Path)}
+ */
+public class ScotlandYardMapConverterTest extends ModelTestBase {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testStandardMapRoundTrips() throws IOException {
+		Graph<Integer, Transport> graph = defaultGraph();
+		Map<Integer, Entry<Integer, Integer>> positions = StandardGame.pngMapPositionEntries();
+		Path file = folder.newFile("map.bin").toPath();
+		ScotlandYardMapConverter.write(graph, positions, file);
+
+		IntGraph<Transport> mapped = ScotlandYardGraphReader.fromMappedFile(file);
+		IntGraph<Transport> expected = IntGraph.copyOf(graph, Transport.class);
+		assertThat(mapped.getNodes()).isEqualTo(graph.getNodes());
+		assertThat(mapped.edgeCount()).isEqualTo(expected.edgeCount());
+		assertThat(new HashSet<>(mapped.getEdges())).isEqualTo(new HashSet<>(graph.getEdges()));
+		for (Node<Integer> node : graph.getNodes()) {
+			assertThat(mapped.getEdgesFrom(node)).isEqualTo(expected.getEdgesFrom(node));
+			assertThat(new HashSet<>(mapped.getEdgesTo(node)))
+					.isEqualTo(new HashSet<>(expected.getEdgesTo(node)));
+		}
+		assertThat(ScotlandYardGraphReader.positionsFromMappedFile(file)).isEqualTo(positions);
+	}
+
+	@Test
+	public void testConvertTextFiles() throws IOException {
+		Path graph = folder.newFile("graph.txt").toPath();
+		Path positions = folder.newFile("pos.txt").toPath();
+		Path out = folder.newFile("map.bin").toPath();
+		Files.write(graph, Arrays.asList("3 2", "1", "2", "7", "1 2 Boat", "7 2 Bus"));
+		Files.write(positions, Arrays.asList("3", "1 10 20", "7 30 40"));
+		ScotlandYardMapConverter.convert(graph, positions, out);
+
+		IntGraph<Transport> mapped = ScotlandYardGraphReader.fromMappedFile(out);
+		assertThat(mapped.getNodes()).extracting(Node::value).containsExactly(1, 2, 7);
+		assertThat(mapped.maxNode()).isEqualTo(7);
+		assertThat(mapped.degree(2)).isEqualTo(2);
+		assertThat(mapped.dataOf(mapped.edgeStart(7))).isEqualTo(Transport.Bus);
+		assertThat(ScotlandYardGraphReader.positionsFromMappedFile(out)).containsOnlyKeys(1, 7);
+		assertThat(ScotlandYardGraphReader.positionsFromMappedFile(out).get(7).getValue())
+				.isEqualTo(40 + StandardGame.MAP_OFFSET);
+	}
+
+	@Test
+	public void testEmptyGraphWithoutPositions() throws IOException {
+		Path graph = folder.newFile("graph.txt").toPath();
+		Path out = folder.newFile("map.bin").toPath();
+		Files.write(graph, Collections.singletonList("0 0"));
+		ScotlandYardMapConverter.convert(graph, null, out);
+		assertThat(ScotlandYardGraphReader.fromMappedFile(out).isEmpty()).isTrue();
+		assertThat(ScotlandYardGraphReader.positionsFromMappedFile(out)).isEmpty();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTextFileShouldThrow() throws IOException {
+		Path file = folder.newFile("graph.txt").toPath();
+		Files.write(file, Arrays.asList("3 2", "1", "2", "3", "1 2 Boat", "3 2 Taxi"));
+		ScotlandYardGraphReader.fromMappedFile(file);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedFileShouldThrow() throws IOException {
+		Path file = folder.newFile("map.bin").toPath();
+		ScotlandYardMapConverter.write(defaultGraph(), Collections.emptyMap(), file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+		ScotlandYardGraphReader.fromMappedFile(file);
+	}
+
+}
@@ -0,0 +1,61 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Seeds}
+ */
+public class SeedsTest {
+
+	@Test
+	public void testSeedsAreDeterministicAndDistinct() {
+		assertThat(Seeds.game(1, 5)).isEqualTo(Seeds.game(1, 5));
+		Set<Long> seeds = new HashSet<>();
+		for (int game = 0; game < 1000; game++) {
+			seeds.add(Seeds.game(42, game));
+			seeds.add(Seeds.game(43, game));
+		}
+		assertThat(seeds).hasSize(2000);
+		long game = Seeds.game(42, 0);
+		assertThat(Seeds.player(game, Black)).isNotEqualTo(Seeds.player(game, Blue));
+		assertThat(Seeds.player(game, Black)).isEqualTo(Seeds.player(game, Black));
+	}
+
+	@Test
+	public void testShuffleIsAPermutation() {
+		List<Integer> list = new ArrayList<>();
+		for (int i = 0; i < 50; i++)
+			list.add(i);
+		List<Integer> shuffled = new ArrayList<>(list);
+		Seeds.shuffle(shuffled, Seeds.random(7));
+		assertThat(shuffled).isNotEqualTo(list);
+		assertThat(new HashSet<>(shuffled)).isEqualTo(new HashSet<>(list));
+		List<Integer> again = new ArrayList<>(list);
+		Seeds.shuffle(again, Seeds.random(7));
+		assertThat(again).isEqualTo(shuffled);
+	}
+
+	@Test
+	public void testStandardGameLocationsFromStream() {
+		for (int game = 0; game < 100; game++) {
+			long seed = Seeds.game(0, game);
+			List<Integer> locations = StandardGame.generateDetectiveLocations(Seeds.random(seed), 5);
+			assertThat(locations).doesNotHaveDuplicates().hasSize(5);
+			assertThat(StandardGame.DETECTIVE_LOCATIONS).containsAll(locations);
+			assertThat(StandardGame.generateDetectiveLocations(Seeds.random(seed), 5))
+					.isEqualTo(locations);
+			assertThat(StandardGame.MRX_LOCATIONS)
+					.contains(StandardGame.generateMrXLocation(Seeds.random(seed)));
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.SimulationEngine.Statistics;
+
+/**
+ * Tests for {@link SimulationEngine}
+ */
+public class SimulationEngineTest {
+
+	private static NeighbourTable neighbours;
+
+	@BeforeClass
+	public static void setUp() throws IOException, URISyntaxException {
+		neighbours = new NeighbourTable(ScotlandYardGraphReader.fromLines(Files.readAllLines(
+				Paths.get(SimulationEngineTest.class.getResource("/game_graph.txt").toURI()))));
+	}
+
+	private static ScotlandYardEngine engine() {
+		return new ScotlandYardEngine(StandardGame.ROUNDS, neighbours,
+				ModelTestBase.of(Black, 45), ModelTestBase.of(Blue, 94),
+				ModelTestBase.of(Red, 111));
+	}
+
+	@Test
+	public void testPlayEndsGame() {
+		ScotlandYardEngine engine = engine();
+		int moves = new SimulationEngine(SimulationEngine.first(), SimulationEngine.first())
+				.play(engine);
+		assertThat(engine.isGameOver()).isTrue();
+		assertThat(engine.depth()).isEqualTo(moves);
+	}
+
+	@Test
+	public void testRunRewindsEngine() {
+		ScotlandYardEngine engine = engine();
+		String start = engine.toString();
+		SplittableRandom random = Seeds.random(42);
+		Statistics statistics = new SimulationEngine(SimulationEngine.random(random),
+				SimulationEngine.random(random)).run(engine, 200);
+		assertThat(statistics.playouts()).isEqualTo(200);
+		assertThat(statistics.mrXWins() + statistics.detectiveWins()).isEqualTo(200);
+		assertThat(statistics.averageMoves()).isGreaterThan(0);
+		assertThat(engine.toString()).isEqualTo(start);
+		assertThat(engine.depth()).isZero();
+	}
+
+	@Test
+	public void testSameSeedGivesSameResults() {
+		Statistics a = new SimulationEngine(SimulationEngine.random(Seeds.random(1)),
+				SimulationEngine.random(Seeds.random(2))).run(engine(), 50);
+		Statistics b = new SimulationEngine(SimulationEngine.random(Seeds.random(1)),
+				SimulationEngine.random(Seeds.random(2))).run(engine(), 50);
+		assertThat(a.mrXWins()).isEqualTo(b.mrXWins());
+		assertThat(a.moves()).isEqualTo(b.moves());
+	}
+
+}
@@ -0,0 +1,269 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static java.util.Collections.singleton;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+import static uk.ac.bris.cs.scotlandyard.model.Ticket.Taxi;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.SpectatorBus.Backpressure;
+
+/**
+ * Tests for {@link SpectatorBus}
+ */
+public class SpectatorBusTest extends ModelTestBase {
+
+	private static class RecordingSpectator implements Spectator {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void onMoveMade(ScotlandYardView view, Move move) {
+			events.add("move " + move);
+		}
+
+		@Override
+		public void onRoundStarted(ScotlandYardView view, int round) {
+			events.add("round " + round);
+		}
+
+		@Override
+		public void onRotationComplete(ScotlandYardView view) {
+			events.add("rotation");
+		}
+
+		@Override
+		public void onGameOver(ScotlandYardView view, Set<Colour> winningPlayers) {
+			events.add("over " + winningPlayers);
+		}
+	}
+
+	@Test
+	public void testEventsAreDeliveredInOrder() throws InterruptedException {
+		ScotlandYardView view = mock(ScotlandYardView.class);
+		RecordingSpectator spectator = new RecordingSpectator();
+		List<String> expected = new ArrayList<>();
+		try (SpectatorBus bus = new SpectatorBus(8, 3, Backpressure.BLOCK, e -> {})) {
+			bus.register(spectator);
+			for (int i = 1; i <= 100; i++) {
+				bus.onMoveMade(view, new TicketMove(Black, Taxi, i));
+				bus.onRoundStarted(view, i);
+				bus.onRotationComplete(view);
+				expected.add("move " + new TicketMove(Black, Taxi, i));
+				expected.add("round " + i);
+				expected.add("rotation");
+			}
+			bus.onGameOver(view, singleton(Black));
+			expected.add("over [Black]");
+			bus.flush();
+			assertThat(spectator.events).containsExactlyElementsOf(expected);
+		}
+	}
+
+	// records what a spectator sees of the game at every move
+	private static class ViewSpectator implements Spectator {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void onMoveMade(ScotlandYardView view, Move move) {
+			events.add(move + " in round " + view.getCurrentRound() + " with " + view.getCurrentPlayer()
+					+ " to move, MrX last seen at " + view.getPlayerLocation(Black));
+		}
+	}
+
+	@Test
+	public void testViewsShowThePositionOfTheEvent() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		ViewSpectator direct = new ViewSpectator();
+		ViewSpectator delayed = new ViewSpectator() {
+			@Override
+			public void onMoveMade(ScotlandYardView view, Move move) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.onMoveMade(view, move);
+			}
+		};
+		Player first = (view, location, moves, callback) -> callback.accept(moves.iterator().next());
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				new PlayerConfiguration.Builder(Black).using(first).with(mrXTickets()).at(45).build(),
+				new PlayerConfiguration.Builder(Blue).using(first).with(detectiveTickets()).at(94)
+						.build(),
+				new PlayerConfiguration.Builder(Red).using(first).with(detectiveTickets()).at(111)
+						.build());
+		try (SpectatorBus bus = new SpectatorBus(e -> {})) {
+			bus.register(delayed);
+			model.registerSpectator(direct);
+			model.registerSpectator(bus);
+			// the game carries on while the bus holds back every event
+			for (int i = 0; i < 4 && !model.isGameOver(); i++)
+				model.startRotate();
+			release.countDown();
+			bus.flush();
+		}
+		assertThat(direct.events).isNotEmpty();
+		assertThat(delayed.events).isEqualTo(direct.events);
+	}
+
+	@Test
+	public void testDropNeverDropsGameOver() throws InterruptedException {
+		ScotlandYardView view = mock(ScotlandYardView.class);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingSpectator spectator = new RecordingSpectator() {
+			@Override
+			public void onRotationComplete(ScotlandYardView view) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.onRotationComplete(view);
+			}
+		};
+		try (SpectatorBus bus = new SpectatorBus(1, 1, Backpressure.DROP, e -> {})) {
+			bus.register(spectator);
+			// one event being delivered, one filling the buffer, one dropped
+			bus.onRotationComplete(view);
+			started.await();
+			bus.onRotationComplete(view);
+			bus.onRotationComplete(view);
+			assertThat(bus.dropped()).isEqualTo(1);
+			Thread publisher = new Thread(() -> bus.onGameOver(view, singleton(Black)));
+			publisher.start();
+			// the game waits for room instead of dropping the end of the game
+			while (publisher.isAlive() && publisher.getState() != Thread.State.WAITING)
+				Thread.yield();
+			boolean waited = publisher.isAlive();
+			release.countDown();
+			publisher.join();
+			assertThat(waited).isTrue();
+			bus.flush();
+			assertThat(spectator.events).endsWith("over [Black]");
+		}
+	}
+
+	@Test
+	public void testDropDoesNotBlockWhenFull() throws InterruptedException {
+		ScotlandYardView view = mock(ScotlandYardView.class);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingSpectator spectator = new RecordingSpectator() {
+			@Override
+			public void onRotationComplete(ScotlandYardView view) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.onRotationComplete(view);
+			}
+		};
+		try (SpectatorBus bus = new SpectatorBus(4, 1, Backpressure.DROP, e -> {})) {
+			bus.register(spectator);
+			for (int i = 0; i < 20; i++)
+				bus.onRotationComplete(view);
+			assertThat(bus.dropped()).isGreaterThan(0);
+			release.countDown();
+			bus.flush();
+			assertThat(spectator.events.size() + bus.dropped()).isEqualTo(20);
+		}
+	}
+
+	@Test
+	public void testExceptionsGoToHandlerAndDeliveryContinues() throws InterruptedException {
+		ScotlandYardView view = mock(ScotlandYardView.class);
+		List<Throwable> errors = new ArrayList<>();
+		RecordingSpectator spectator = new RecordingSpectator();
+		try (SpectatorBus bus = new SpectatorBus(16, 16, Backpressure.BLOCK, errors::add)) {
+			bus.register(new Spectator() {
+				@Override
+				public void onRoundStarted(ScotlandYardView view, int round) {
+					throw new IllegalStateException("broken");
+				}
+			});
+			bus.register(spectator);
+			bus.onRoundStarted(view, 1);
+			bus.onRoundStarted(view, 2);
+			bus.flush();
+			assertThat(errors).hasSize(2);
+			assertThat(spectator.events).containsExactly("round 1", "round 2");
+		}
+	}
+
+	@Test
+	public void testWinningPlayersAreCopied() throws InterruptedException {
+		ScotlandYardView view = mock(ScotlandYardView.class);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingSpectator spectator = new RecordingSpectator() {
+			@Override
+			public void onRotationComplete(ScotlandYardView view) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.onRotationComplete(view);
+			}
+		};
+		Set<Colour> winners = new HashSet<>(singleton(Black));
+		try (SpectatorBus bus = new SpectatorBus(e -> {})) {
+			bus.register(spectator);
+			bus.onRotationComplete(view);
+			bus.onGameOver(view, winners);
+			winners.clear();
+			release.countDown();
+			bus.flush();
+			assertThat(spectator.events).containsExactly("rotation", "over [Black]");
+		}
+	}
+
+	@Test
+	public void testCloseWhenInterruptedKeepsInterruptStatus() {
+		CountDownLatch release = new CountDownLatch(1);
+		SpectatorBus bus = new SpectatorBus(e -> {});
+		bus.register(new Spectator() {
+			@Override
+			public void onRotationComplete(ScotlandYardView view) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		bus.onRotationComplete(mock(ScotlandYardView.class));
+		Thread.currentThread().interrupt();
+		bus.close();
+		assertThat(Thread.interrupted()).isTrue();
+		release.countDown();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testPublishAfterCloseShouldThrow() {
+		SpectatorBus bus = new SpectatorBus(e -> {});
+		bus.close();
+		bus.onRotationComplete(mock(ScotlandYardView.class));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterSameSpectatorTwiceShouldThrow() {
+		try (SpectatorBus bus = new SpectatorBus(e -> {})) {
+			Spectator spectator = new RecordingSpectator();
+			bus.register(spectator);
+			bus.register(spectator);
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.gamekit.graph.Edge;
+import uk.ac.bris.cs.gamekit.graph.Graph;
+import uk.ac.bris.cs.gamekit.graph.Node;
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle.Network;
+
+/**
+ * Tests for {@link TicketReachability}
+ */
+public class TicketReachabilityTest extends ModelTestBase {
+
+	private static final int CAP = TicketReachability.CAP;
+
+	// a plain breadth first search over every (node, tickets) state
+	private static Map<Integer, Integer> distances(Graph<Integer, Transport> graph, int source,
+			int taxi, int bus, int underground) {
+		Map<Integer, Integer> distances = new HashMap<>();
+		Map<List<Integer>, Integer> seen = new HashMap<>();
+		Deque<List<Integer>> queue = new ArrayDeque<>();
+		List<Integer> start = Arrays.asList(source, taxi, bus, underground);
+		seen.put(start, 0);
+		queue.add(start);
+		distances.put(source, 0);
+		while (!queue.isEmpty()) {
+			List<Integer> state = queue.poll();
+			int depth = seen.get(state);
+			for (Edge<Integer, Transport> edge : graph.getEdgesFrom(graph.getNode(state.get(0)))) {
+				int index = Arrays.asList(Transport.Taxi, Transport.Bus, Transport.Underground)
+						.indexOf(edge.data()) + 1;
+				if (index == 0 || state.get(index) == 0) continue;
+				Integer[] next = state.toArray(new Integer[0]);
+				next[0] = edge.destination().value();
+				next[index]--;
+				List<Integer> nextState = Arrays.asList(next);
+				if (seen.containsKey(nextState)) continue;
+				seen.put(nextState, depth + 1);
+				queue.add(nextState);
+				distances.putIfAbsent(next[0], depth + 1);
+			}
+		}
+		return distances;
+	}
+
+	@Test
+	public void testDistancesMatchBreadthFirstSearch() {
+		Graph<Integer, Transport> graph = defaultGraph();
+		TicketReachability reachability = new TicketReachability(graph);
+		Random random = new Random(42);
+		for (int i = 0; i < 12; i++) {
+			int source = 1 + random.nextInt(199);
+			int taxi = random.nextInt(6);
+			int bus = random.nextInt(5);
+			int underground = random.nextInt(3);
+			Map<Integer, Integer> expected = distances(graph, source, taxi, bus, underground);
+			for (Node<Integer> node : graph.getNodes()) {
+				int to = node.value();
+				assertThat(reachability.distance(source, to, taxi, bus, underground))
+						.as("%s->%s with %s %s %s", source, to, taxi, bus, underground)
+						.isEqualTo(expected.getOrDefault(to, TicketReachability.UNREACHABLE));
+			}
+		}
+	}
+
+	@Test
+	public void testNeverShorterThanDistanceOracle() {
+		Graph<Integer, Transport> graph = defaultGraph();
+		TicketReachability reachability = new TicketReachability(graph);
+		DistanceOracle oracle = DistanceOracle.of(graph);
+		for (int source : new int[] { 1, 45, 94, 111, 199 }) {
+			for (Node<Integer> node : graph.getNodes()) {
+				int to = node.value();
+				int unlimited = oracle.distance(Network.Detective, source, to);
+				assertThat(reachability.distance(source, to, 11, 8, 4))
+						.isGreaterThanOrEqualTo(unlimited);
+				assertThat(reachability.distance(source, to, CAP, CAP, CAP)).isEqualTo(unlimited);
+				assertThat(reachability.distance(source, to, 1000, 0, 0))
+						.isEqualTo(oracle.distance(Network.Taxi, source, to));
+			}
+		}
+	}
+
+	@Test
+	public void testCappedCountsFallBackToExactSearch() {
+		// a line of taxi edges longer than the cap
+		List<String> lines = new ArrayList<>();
+		lines.add("20 19");
+		for (int node = 1; node <= 20; node++)
+			lines.add(String.valueOf(node));
+		for (int node = 1; node < 20; node++)
+			lines.add(node + " " + (node + 1) + " Taxi");
+		TicketReachability reachability = new TicketReachability(
+				ScotlandYardGraphReader.fromLines(lines));
+		assertThat(reachability.distance(1, 20, CAP, 0, 0))
+				.isEqualTo(TicketReachability.UNREACHABLE);
+		assertThat(reachability.distance(1, 20, CAP + 4, 0, 0)).isEqualTo(19);
+		assertThat(reachability.distance(1, 20, 100, 0, 0)).isEqualTo(19);
+		assertThat(reachability.distance(1, 16, 100, 0, 0)).isEqualTo(15);
+		assertThat(reachability.distance(20, 20, 0, 0, 0)).isZero();
+	}
+
+	@Test
+	public void testBoatsAreNeverUsed() {
+		TicketReachability reachability = new TicketReachability(ScotlandYardGraphReader
+				.fromLines(Arrays.asList("3 2", "1", "2", "3", "1 2 Boat", "2 3 Bus")));
+		assertThat(reachability.distance(1, 2, 5, 5, 5)).isEqualTo(TicketReachability.UNREACHABLE);
+		assertThat(reachability.distance(3, 2, 0, 1, 0)).isEqualTo(1);
+		assertThat(reachability.distance(3, 2, 1, 0, 1)).isEqualTo(TicketReachability.UNREACHABLE);
+		assertThat(reachability.maxNode()).isEqualTo(3);
+	}
+
+	@Test
+	public void testDistanceFollowsViewTickets() {
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				of(Black, 45), new PlayerConfiguration.Builder(Blue).using(mocked())
+						.with(noTickets()).at(94).build(),
+				of(Red, 111));
+		TicketReachability reachability = new TicketReachability(defaultGraph());
+		assertThat(reachability.distance(model, Blue, 94)).isZero();
+		assertThat(reachability.distance(model, Blue, 93))
+				.isEqualTo(TicketReachability.UNREACHABLE);
+		assertThat(reachability.distance(model, Red, 112))
+				.isEqualTo(reachability.distance(111, 112, 11, 8, 4));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMrXDistanceShouldThrow() {
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				of(Black, 45), of(Blue, 94));
+		new TicketReachability(defaultGraph()).distance(model, Black, 46);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeTicketsShouldThrow() {
+		new TicketReachability(defaultGraph()).distance(1, 2, -1, 0, 0);
+	}
+
+}
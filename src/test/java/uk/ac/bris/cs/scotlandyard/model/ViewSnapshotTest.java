@@ -0,0 +1,123 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Black;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Blue;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Green;
+import static uk.ac.bris.cs.scotlandyard.model.Colour.Red;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ViewSnapshot}
+ */
+public class ViewSnapshotTest extends ModelTestBase {
+
+	/**
+	 * A random player that checks every snapshot against the live game
+	 */
+	private static class CheckingPlayer implements Player {
+
+		private final Random random;
+		private final List<ScotlandYardView> snapshots = new ArrayList<>();
+		private final List<Long> keys = new ArrayList<>();
+
+		CheckingPlayer(long seed) {
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public void makeMove(ScotlandYardView view, int location, Set<Move> moves,
+				Consumer<Move> callback) {
+			ScotlandYardView snapshot = view.snapshot();
+			assertSameView(snapshot, view);
+			assertThat(view.snapshot()).isSameAs(snapshot);
+			snapshots.add(snapshot);
+			keys.add(view.getZobristKey());
+			List<Move> sorted = new ArrayList<>(moves);
+			sorted.sort(Comparator.comparing(Move::toString));
+			callback.accept(sorted.get(random.nextInt(sorted.size())));
+		}
+	}
+
+	private static void assertSameView(ScotlandYardView actual, ScotlandYardView expected) {
+		assertThat(actual.getPlayers()).isEqualTo(expected.getPlayers());
+		for (Colour colour : Colour.values()) {
+			assertThat(actual.getPlayerLocation(colour))
+					.isEqualTo(expected.getPlayerLocation(colour));
+			for (Ticket ticket : Ticket.values())
+				assertThat(actual.getPlayerTickets(colour, ticket))
+						.isEqualTo(expected.getPlayerTickets(colour, ticket));
+		}
+		assertThat(actual.getWinningPlayers()).isEqualTo(expected.getWinningPlayers());
+		assertThat(actual.isGameOver()).isEqualTo(expected.isGameOver());
+		assertThat(actual.getCurrentPlayer()).isEqualTo(expected.getCurrentPlayer());
+		assertThat(actual.getCurrentRound()).isEqualTo(expected.getCurrentRound());
+		assertThat(actual.getRounds()).isEqualTo(expected.getRounds());
+		assertThat(actual.getZobristKey()).isEqualTo(expected.getZobristKey());
+	}
+
+	@Test
+	public void testSnapshotsMatchAndDoNotChange() {
+		CheckingPlayer player = new CheckingPlayer(1);
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				new PlayerConfiguration.Builder(Black).using(player).with(mrXTickets()).at(45)
+						.build(),
+				new PlayerConfiguration.Builder(Blue).using(player).with(detectiveTickets())
+						.at(94).build(),
+				new PlayerConfiguration.Builder(Red).using(player).with(detectiveTickets())
+						.at(111).build(),
+				new PlayerConfiguration.Builder(Green).using(player).with(detectiveTickets())
+						.at(29).build());
+		while (!model.isGameOver())
+			model.startRotate();
+		assertSameView(model.snapshot(), model);
+		assertThat(model.snapshot().getWinningPlayers()).isNotEmpty();
+		for (int i = 0; i < player.snapshots.size(); i++)
+			assertThat(player.snapshots.get(i).getZobristKey()).isEqualTo(player.keys.get(i));
+		assertThat(player.snapshots.stream().distinct().count()).isEqualTo(player.snapshots.size());
+	}
+
+	@Test
+	public void testSnapshotIsSharedUntilTheGameChanges() {
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				of(Black, 45), of(Blue, 94), of(Red, 111));
+		ScotlandYardView before = model.snapshot();
+		assertThat(model.snapshot()).isSameAs(before);
+		assertThat(before.snapshot()).isSameAs(before);
+		model.registerSpectator(new Spectator() {});
+		assertThat(model.snapshot()).isSameAs(before);
+	}
+
+	@Test
+	public void testDefaultSnapshotCopiesView() {
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				of(Black, 45), of(Blue, 94), of(Red, 111));
+		ViewSnapshot snapshot = ViewSnapshot.of(model);
+		assertSameView(snapshot, model);
+		assertThat(ViewSnapshot.of(snapshot)).isSameAs(snapshot);
+	}
+
+	@Test
+	public void testTicketsOfColourNotPlayingAreMinusOne() {
+		ScotlandYardModel model = new ScotlandYardModel(StandardGame.ROUNDS, defaultGraph(),
+				of(Black, 45), of(Blue, 94));
+		int[] expected = new int[Ticket.values().length];
+		Arrays.fill(expected, -1);
+		for (ScotlandYardView view : Arrays.asList(model, model.snapshot())) {
+			int[] out = new int[Ticket.values().length];
+			view.getPlayerTickets(Red, out);
+			assertThat(out).isEqualTo(expected);
+			assertThat(view.getPlayerTickets(Red, Ticket.Taxi)).isEqualTo(-1);
+		}
+	}
+
+}